@@ -0,0 +1,55 @@
+package graphalgs;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Times whole runs of GraphAlgs.dijkstra with each HeapStrategy.  The sparse
+ * graph has 100,000 vertices of out-degree 9, and the dense one is complete on
+ * 1,000 vertices.  Weights are either "small" (at most 100), where AUTO picks the
+ * bucket queue, or "large" (up to a million), where it picks a comparison heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DijkstraBenchmark {
+	@Param({"sparse", "dense"})
+	public String shape;
+
+	@Param({"small", "large"})
+	public String weights;
+
+	@Param({"AUTO", "BINARY", "DARY", "BUCKET", "PAIRING", "LAZY"})
+	public HeapStrategy heap;
+
+	private Graph g;
+
+	@Setup
+	public void setUp() {
+		int maxWeight = weights.equals("small") ? 100 : 1000000;
+		if(shape.equals("sparse"))
+			g = RandomGraphs.sparse(100000, 8, maxWeight, 1);
+		else
+			g = RandomGraphs.dense(1000, maxWeight, 1);
+		g.maxEdgeWeight(); // cache it, so the first run doesn't pay for it
+	}
+
+	@Benchmark
+	public int[] dijkstra() {
+		return GraphAlgs.dijkstra(g, 0, true, heap);
+	}
+}
@@ -0,0 +1,73 @@
+package graphalgs;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Times each Heap implementation replaying the same trace of operations.  The
+ * "sparse" and "dense" traces are recorded from Dijkstra's algorithm on the
+ * graphs in DijkstraBenchmark, and "random" is a generated mix with about two
+ * decreases per key.  Each invocation replays the whole trace into a new heap,
+ * so the score is traces per second, and -prof gc shows what each heap allocates
+ * per trace.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeapBenchmark {
+	@Param({"fixed", "expandable", "dary", "bucket", "pairing", "lazy"})
+	public String heap;
+
+	@Param({"sparse", "dense", "random"})
+	public String trace;
+
+	private HeapTrace ops;
+
+	@Setup
+	public void setUp() {
+		if(trace.equals("sparse"))
+			ops = HeapTrace.dijkstra(RandomGraphs.sparse(100000, 8, 1000, 1), 0);
+		else if(trace.equals("dense"))
+			ops = HeapTrace.dijkstra(RandomGraphs.dense(1000, 1000, 1), 0);
+		else
+			ops = HeapTrace.random(100000, 1000, 2.0, 1);
+	}
+
+	/*
+	 * Makes an empty heap of the kind being measured.
+	 */
+	static Heap newHeap(String name, int numKeys, int maxSpread) {
+		if(name.equals("fixed"))
+			return new FixedHeap(numKeys);
+		if(name.equals("expandable"))
+			return new ExpandableHeap(numKeys);
+		if(name.equals("dary"))
+			return new DaryHeap(numKeys);
+		if(name.equals("bucket"))
+			return new BucketHeap(numKeys, maxSpread);
+		if(name.equals("pairing"))
+			return new PairingHeap(numKeys);
+		if(name.equals("lazy"))
+			return new LazyHeap(numKeys);
+		throw new IllegalArgumentException("Unknown heap " + name);
+	}
+
+	@Benchmark
+	public long replay() {
+		return ops.replay(newHeap(heap, ops.numKeys(), ops.maxSpread()));
+	}
+}
@@ -0,0 +1,162 @@
+package graphalgs;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/*
+ * A recorded sequence of heap operations, which can be replayed against any Heap
+ * to time it on exactly the same work.  Traces are either recorded from a real
+ * run of Dijkstra's algorithm or generated at random, and either way every value
+ * added is between the last value removed and that plus maxSpread, so BucketHeap
+ * can replay them too.
+ */
+public class HeapTrace {
+	public static final byte ADD = 0;
+	public static final byte UPDATE = 1;
+	public static final byte DEQUEUE = 2;
+
+	private byte[] ops = new byte[1024];
+	private int[] keys = new int[1024];
+	private int[] values = new int[1024];
+	private int size = 0;
+	private int numKeys;
+	private int maxSpread;
+
+	private HeapTrace(int numKeys, int maxSpread) {
+		this.numKeys = numKeys;
+		this.maxSpread = maxSpread;
+	}
+
+	private void record(byte op, int key, int value) {
+		if(size == ops.length) {
+			ops = Arrays.copyOf(ops, size * 2);
+			keys = Arrays.copyOf(keys, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+		ops[size] = op;
+		keys[size] = key;
+		values[size] = value;
+		size++;
+	}
+
+	/*
+	 * Records the heap operations Dijkstra's algorithm makes searching g from
+	 * source, the same way GraphAlgs.dijkstra makes them.
+	 */
+	public static HeapTrace dijkstra(Graph g, int source) {
+		int n = g.numVertices();
+		HeapTrace trace = new HeapTrace(n, Math.max(g.maxEdgeWeight(), 0));
+		Heap h = new DaryHeap(n);
+		boolean[] visited = new boolean[n];
+		NeighborCursor edges = g.cursor();
+		h.add(source, 0);
+		trace.record(ADD, source, 0);
+		while(!h.isEmpty()) {
+			int val = h.peekTopValue();
+			int current = h.dequeue();
+			trace.record(DEQUEUE, current, val);
+			visited[current] = true;
+			edges.reset(current);
+			for(int v = edges.nextTarget(); v >= 0; v = edges.nextTarget()) {
+				if(visited[v])
+					continue;
+				int d = val + edges.weight();
+				if(!h.hasKey(v)) {
+					h.add(v, d);
+					trace.record(ADD, v, d);
+				}
+				else if(h.getValue(v) > d) {
+					h.updateKey(v, d);
+					trace.record(UPDATE, v, d);
+				}
+			}
+		}
+		return trace;
+	}
+
+	/*
+	 * Generates a random mix of adds, decreases and removals over numKeys keys,
+	 * ending with the heap empty.  Each key is added once, and decreaseRatio is
+	 * roughly how many times each key is lowered before it's removed.
+	 */
+	public static HeapTrace random(int numKeys, int maxSpread, double decreaseRatio, long seed) {
+		HeapTrace trace = new HeapTrace(numKeys, maxSpread);
+		Random rand = new Random(seed);
+		DaryHeap h = new DaryHeap(numKeys);
+		int[] inHeap = new int[numKeys]; // the keys in the heap, in no order
+		int[] slot = new int[numKeys]; // where each key is in inHeap
+		int count = 0;
+		int added = 0;
+		int floor = 0; // the last value removed
+		while(added < numKeys || count > 0) {
+			double r = rand.nextDouble() * (1 + decreaseRatio + 1);
+			if(added < numKeys && (r < 1 || count == 0)) {
+				int value = floor + rand.nextInt(maxSpread + 1);
+				h.add(added, value);
+				trace.record(ADD, added, value);
+				slot[added] = count;
+				inHeap[count++] = added;
+				added++;
+			}
+			else if(r < 1 + decreaseRatio && count > 0) {
+				int key = inHeap[rand.nextInt(count)];
+				int old = h.getValue(key);
+				if(old > floor) {
+					int value = floor + rand.nextInt(old - floor);
+					h.updateKey(key, value);
+					trace.record(UPDATE, key, value);
+				}
+			}
+			else if(count > 0) {
+				floor = h.peekTopValue();
+				int key = h.dequeue();
+				trace.record(DEQUEUE, key, floor);
+				int moved = inHeap[--count];
+				inHeap[slot[key]] = moved;
+				slot[moved] = slot[key];
+			}
+		}
+		return trace;
+	}
+
+	/*
+	 * Runs the trace against h, which must be empty and able to hold keys
+	 * 0 through numKeys()-1.  Returns a checksum of what came out, so the work
+	 * can't be optimized away.  Keys with equal values can come out of h in a
+	 * different order than they did when the trace was made, so an update to a
+	 * key that's already gone is skipped, the way dijkstra would skip it.
+	 */
+	public long replay(Heap h) {
+		long sum = 0;
+		for(int i = 0; i < size; ++i) {
+			switch(ops[i]) {
+			case ADD:
+				h.add(keys[i], values[i]);
+				break;
+			case UPDATE:
+				if(h.hasKey(keys[i]))
+					h.updateKey(keys[i], values[i]);
+				break;
+			default:
+				sum += h.peekTopValue();
+				h.dequeue();
+			}
+		}
+		return sum;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int numKeys() {
+		return numKeys;
+	}
+
+	/*
+	 * The most any two values in the heap ever differ by.
+	 */
+	public int maxSpread() {
+		return maxSpread;
+	}
+}
@@ -0,0 +1,56 @@
+package graphalgs;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Times the two FlowNetwork engines against the old Ford-Fulkerson maxFlow, on a
+ * sparse graph with out-degree 9 and capacities up to a million.  The
+ * Ford-Fulkerson residual is a FixedGraph, so keep -p vertices=... small when
+ * running fordFulkerson; the others are fine on millions of vertices.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MaxFlowBenchmark {
+	@Param({"2000"})
+	public int vertices;
+
+	private Graph g;
+	private FlowNetwork net;
+
+	@Setup
+	public void setUp() {
+		g = RandomGraphs.sparse(vertices, 8, 1000000, 1);
+		net = new FlowNetwork(g);
+	}
+
+	@Benchmark
+	public long dinic() {
+		return net.dinic(0, 1);
+	}
+
+	@Benchmark
+	public long pushRelabel() {
+		return net.pushRelabel(0, 1);
+	}
+
+	@Benchmark
+	public int fordFulkerson() {
+		return GraphAlgs.maxFlow(g, 0, 1, false);
+	}
+}
@@ -0,0 +1,49 @@
+package graphalgs;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Times Kruskal's algorithm against Boruvka's on each number of threads, on a
+ * sparse graph of a million vertices with out-degree 9, so about nine million
+ * edges.  Run with -p threads=1,2,4,... up to the number of cores to see how
+ * Boruvka scales.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MstBenchmark {
+	@Param({"1", "2", "4", "8"})
+	public int threads;
+
+	private Graph g;
+
+	@Setup
+	public void setUp() {
+		g = RandomGraphs.sparse(1000000, 8, 1000000, 1);
+	}
+
+	@Benchmark
+	public EdgeArrays kruskal() {
+		return GraphAlgs.minSpanningEdges(g);
+	}
+
+	@Benchmark
+	public EdgeArrays boruvka() {
+		return GraphAlgs.parallelMinSpanningEdges(g, threads);
+	}
+}
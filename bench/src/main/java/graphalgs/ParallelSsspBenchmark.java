@@ -0,0 +1,63 @@
+package graphalgs;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Times GraphAlgs.deltaStepping on a ForkJoinPool of each size against plain
+ * dijkstra, on a sparse graph of a million vertices with out-degree 9.  Run with
+ * -p threads=1,2,4,... up to the number of cores to see how it scales, and
+ * -p delta=... to try other bucket widths (0 means DeltaStepping.defaultDelta).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelSsspBenchmark {
+	@Param({"1", "2", "4", "8"})
+	public int threads;
+
+	@Param({"0"})
+	public int delta;
+
+	private Graph g;
+	private ForkJoinPool pool;
+
+	@Setup
+	public void setUp() {
+		g = RandomGraphs.sparse(1000000, 8, 1000, 1);
+		if(delta == 0)
+			delta = DeltaStepping.defaultDelta(g);
+		pool = new ForkJoinPool(threads);
+	}
+
+	@TearDown
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public int[] deltaStepping() {
+		return GraphAlgs.deltaStepping(g, 0, true, delta, pool);
+	}
+
+	@Benchmark
+	public int[] dijkstra() {
+		return GraphAlgs.dijkstra(g, 0, true);
+	}
+}
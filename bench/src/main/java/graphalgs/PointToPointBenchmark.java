@@ -0,0 +1,78 @@
+package graphalgs;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Times single-pair shortest path queries between random vertices of a grid of
+ * roads (see RandomGraphs.grid), answered by the bidirectional dijkstraSP, by
+ * aStar with 16 landmarks, and by a contraction hierarchy.  Preprocessing isn't
+ * timed.  Each invocation is one query, so the score is microseconds per query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PointToPointBenchmark {
+	private static final int PAIRS = 1 << 12;
+
+	@Param({"150"})
+	public int side;
+
+	private Graph g;
+	private int[] sources = new int[PAIRS];
+	private int[] sinks = new int[PAIRS];
+	private int next = 0;
+	private SearchContext ctx = new SearchContext();
+	private Landmarks landmarks;
+	private ContractionHierarchy.Query query;
+
+	@Setup
+	public void setUp() {
+		g = RandomGraphs.grid(side, 100, 1);
+		Random rand = new Random(2);
+		for(int i = 0; i < PAIRS; ++i) {
+			sources[i] = rand.nextInt(g.numVertices());
+			sinks[i] = rand.nextInt(g.numVertices());
+		}
+		landmarks = new Landmarks(g, 16);
+		query = new ContractionHierarchy(g).newQuery();
+	}
+
+	private int pair() {
+		next = (next + 1) & (PAIRS - 1);
+		return next;
+	}
+
+	@Benchmark
+	public int dijkstraSP() {
+		int i = pair();
+		return GraphAlgs.dijkstraSP(g, sources[i], sinks[i], ctx);
+	}
+
+	@Benchmark
+	public int alt() {
+		int i = pair();
+		return GraphAlgs.aStar(g, sources[i], sinks[i], landmarks, ctx);
+	}
+
+	@Benchmark
+	public int contractionHierarchy() {
+		int i = pair();
+		return query.distance(sources[i], sinks[i]);
+	}
+}
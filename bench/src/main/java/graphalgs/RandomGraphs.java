@@ -0,0 +1,90 @@
+package graphalgs;
+
+import java.util.Random;
+
+/*
+ * Generates the graphs the benchmarks run on.  They're built straight into
+ * CsrGraphs from edge arrays, so setting up a big one is quick.
+ */
+public class RandomGraphs {
+	/*
+	 * A random directed graph where every vertex has degree out-edges to random
+	 * other vertices, plus an edge to the next vertex so everything is reachable
+	 * from 0.  Weights are uniform in [1, maxWeight].
+	 */
+	public static CsrGraph sparse(int n, int degree, int maxWeight, long seed) {
+		Random rand = new Random(seed);
+		int m = n * (degree + 1);
+		int[] us = new int[m];
+		int[] vs = new int[m];
+		int[] ws = new int[m];
+		int e = 0;
+		for(int u = 0; u < n; ++u) {
+			us[e] = u;
+			vs[e] = (u + 1) % n;
+			ws[e] = rand.nextInt(maxWeight) + 1;
+			e++;
+			for(int i = 0; i < degree; ++i) {
+				us[e] = u;
+				vs[e] = rand.nextInt(n);
+				ws[e] = rand.nextInt(maxWeight) + 1;
+				e++;
+			}
+		}
+		return new CsrGraph(n, us, vs, ws, e);
+	}
+
+	/*
+	 * A complete directed graph on n vertices with weights uniform in
+	 * [1, maxWeight].
+	 */
+	public static CsrGraph dense(int n, int maxWeight, long seed) {
+		Random rand = new Random(seed);
+		int m = n * (n - 1);
+		int[] us = new int[m];
+		int[] vs = new int[m];
+		int[] ws = new int[m];
+		int e = 0;
+		for(int u = 0; u < n; ++u) {
+			for(int v = 0; v < n; ++v) {
+				if(u == v)
+					continue;
+				us[e] = u;
+				vs[e] = v;
+				ws[e] = rand.nextInt(maxWeight) + 1;
+				e++;
+			}
+		}
+		return new CsrGraph(n, us, vs, ws, e);
+	}
+
+	/*
+	 * A side-by-side grid of two-way roads, each with its own weight in
+	 * [1, maxWeight] in each direction, as a stand-in for a road network.
+	 */
+	public static CsrGraph grid(int side, int maxWeight, long seed) {
+		Random rand = new Random(seed);
+		int n = side * side;
+		int m = 4 * n;
+		int[] us = new int[m];
+		int[] vs = new int[m];
+		int[] ws = new int[m];
+		int e = 0;
+		for(int u = 0; u < n; ++u) {
+			int[] neighbors = {u % side + 1 < side ? u + 1 : -1, u + side < n ? u + side : -1};
+			for(int v : neighbors) {
+				if(v < 0)
+					continue;
+				us[e] = u;
+				vs[e] = v;
+				ws[e] = rand.nextInt(maxWeight) + 1;
+				e++;
+				us[e] = v;
+				vs[e] = u;
+				ws[e] = rand.nextInt(maxWeight) + 1;
+				e++;
+			}
+		}
+		return new CsrGraph(n, us, vs, ws, e);
+	}
+}
@@ -0,0 +1,56 @@
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * A read-only snapshot of a graph's adjacency list, the counterpart to MatrixView.
+ * Graphs hand these out from adjacencyView() and rebuild them only after they've
+ * been modified.  Each row maps a neighbor to the weight of the edge leading to it,
+ * just like the maps from getAdjList, except that trying to change one throws
+ * an UnsupportedOperationException.
+ */
+public class AdjacencyView {
+	private final Map<Integer,Integer>[] rows;
+	private final int version;
+	
+	/*
+	 * Copies the rows of g into unmodifiable maps.
+	 * 
+	 * g: The graph to copy.
+	 * version: The version of g being copied.
+	 */
+	AdjacencyView(Graph g, int version) {
+		int n = g.numVertices();
+		rows = new Map[n];
+		NeighborCursor c = g.cursor();
+		for(int u = 0; u < n; ++u) {
+			Map<Integer,Integer> row = new LinkedHashMap<Integer,Integer>();
+			c.reset(u);
+			for(int v = c.nextTarget(); v >= 0; v = c.nextTarget())
+				row.put(v, c.weight());
+			rows[u] = Collections.unmodifiableMap(row);
+		}
+		this.version = version;
+	}
+	
+	/*
+	 * Returns the out-edges of u.
+	 */
+	public Map<Integer,Integer> row(int u) {
+		return rows[u];
+	}
+	
+	/*
+	 * Returns the number of vertices.
+	 */
+	public int size() {
+		return rows.length;
+	}
+	
+	/*
+	 * The version of the graph this view was taken from.
+	 */
+	public int version() {
+		return version;
+	}
+}
@@ -0,0 +1,168 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Minimum spanning forests by Boruvka's algorithm, spread over several threads.
+ * Each round, every component picks the cheapest edge leaving it, and all of
+ * those are added at once, which at least halves the number of components, so
+ * there are at most log V rounds.  The edge list is split into one slice per
+ * task, and each task scans its slice in parallel, offering every edge to the
+ * components at both ends by compare-and-set, and dropping edges that have
+ * become internal to a component so later rounds have less to scan.  Joining
+ * the components up is done in between, by one thread, with a DisjointSet.
+ *
+ * Edges are ordered by weight and then by their position in g.edgeArrays(),
+ * packed into one long the same way EdgeArrays.sortByWeight does it, so there
+ * are never any ties, and the forest found is exactly the one Kruskal's
+ * algorithm finds, in the same order.
+ *
+ * Use it through GraphAlgs.parallelMinSpanningEdges.
+ */
+public class Boruvka {
+	private static final long NONE = Long.MAX_VALUE; // no edge has been offered yet
+	private final int numVerts;
+	private final int threads;
+	private final EdgeArrays edges;
+	private final int[] comp; // the root of each vertex's component, as of the last round
+	private final AtomicLongArray cheapest; // the best (weight << 32) | edge leaving each root
+	private final int[] live; // the edges of each slice that might still join two components
+	private final int[] sliceStart;
+	private final int[] sliceSize;
+
+	/*
+	 * g: The graph, whose edges are taken to be undirected.
+	 * threads: How many threads to scan edges with.
+	 */
+	public Boruvka(Graph g, int threads) {
+		if(threads < 1)
+			throw new IllegalArgumentException("Need at least one thread to search with");
+		this.threads = threads;
+		numVerts = g.numVertices();
+		edges = g.edgeArrays();
+		comp = new int[numVerts];
+		cheapest = new AtomicLongArray(numVerts);
+		int m = edges.size();
+		live = new int[m];
+		int slices = Math.max(1, Math.min(4 * threads, m));
+		sliceStart = new int[slices];
+		sliceSize = new int[slices];
+		for(int s = 0; s < slices; ++s)
+			sliceStart[s] = (int)((long)m * s / slices);
+	}
+
+	private static long key(int weight, int e) {
+		return ((long)weight << 32) | (e & 0xffffffffL);
+	}
+
+	// Lowers the cheapest edge out of root c to key, if it's better
+	private void offer(int c, long key) {
+		while(true) {
+			long old = cheapest.get(c);
+			if(key >= old || cheapest.compareAndSet(c, old, key))
+				return;
+		}
+	}
+
+	/*
+	 * Finds the minimum spanning forest, as a list of its edges in increasing
+	 * order of weight, each edge once, the way round it was in g.
+	 */
+	public EdgeArrays run() {
+		int m = edges.size();
+		for(int e = 0; e < m; ++e)
+			live[e] = e;
+		for(int s = 0; s < sliceStart.length; ++s)
+			sliceSize[s] = (s + 1 < sliceStart.length ? sliceStart[s+1] : m) - sliceStart[s];
+		for(int v = 0; v < numVerts; ++v) {
+			comp[v] = v;
+			cheapest.set(v, NONE);
+		}
+		DisjointSet sets = new DisjointSet(numVerts);
+		long[] chosen = new long[Math.max(numVerts - 1, 0)];
+		int count = 0;
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			while(scan(pool)) {
+				for(int c = 0; c < numVerts; ++c) {
+					long best = cheapest.get(c);
+					if(best == NONE)
+						continue;
+					cheapest.set(c, NONE);
+					int e = (int)best;
+					// both ends may have picked the same edge
+					if(sets.union(edges.u[e], edges.v[e]))
+						chosen[count++] = best;
+				}
+				for(int v = 0; v < numVerts; ++v)
+					comp[v] = sets.find(v);
+			}
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		Arrays.sort(chosen, 0, count);
+		int[] us = new int[count];
+		int[] vs = new int[count];
+		int[] ws = new int[count];
+		for(int i = 0; i < count; ++i) {
+			int e = (int)chosen[i];
+			us[i] = edges.u[e];
+			vs[i] = edges.v[e];
+			ws[i] = edges.weight[e];
+		}
+		return new EdgeArrays(us, vs, ws);
+	}
+
+	/*
+	 * Scans every slice of live edges at once, offering each to the components at
+	 * its ends.  Returns whether any edge still joins two components.
+	 */
+	private boolean scan(ExecutorService pool) {
+		List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+		for(int s = 0; s < sliceStart.length; ++s) {
+			final int slice = s;
+			futures.add(pool.submit(new Callable<Boolean>() {
+				public Boolean call() {
+					int start = sliceStart[slice];
+					int end = start + sliceSize[slice];
+					int kept = start;
+					for(int i = start; i < end; ++i) {
+						int e = live[i];
+						int cu = comp[edges.u[e]];
+						int cv = comp[edges.v[e]];
+						if(cu == cv)
+							continue;
+						live[kept++] = e;
+						long k = key(edges.weight[e], e);
+						offer(cu, k);
+						offer(cv, k);
+					}
+					sliceSize[slice] = kept - start;
+					return kept > start;
+				}
+			}));
+		}
+		boolean any = false;
+		try {
+			for(Future<Boolean> f : futures)
+				any |= f.get();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while finding a spanning tree", e);
+		}
+		catch(ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException)e.getCause();
+			throw new IllegalStateException("Spanning tree search failed", e.getCause());
+		}
+		return any;
+	}
+}
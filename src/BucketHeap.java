@@ -0,0 +1,190 @@
+/*
+ * A monotone priority queue for small non-negative integer values (Dial's
+ * algorithm).  If the values in the queue never differ by more than maxSpread, as
+ * in Dijkstra's algorithm where every value is at most the largest edge weight
+ * past the last one removed, then maxSpread+1 buckets used in a circle are enough
+ * to hold everything: value x goes in bucket x % (maxSpread+1).  Adding a key or
+ * changing its value is O(1), since it just moves between buckets, and removing
+ * the minimum only has to step forward past empty buckets, which costs at most the
+ * largest value ever removed over the whole life of the queue.
+ *
+ * It's monotone: values added must not be smaller than the last value removed,
+ * nor more than maxSpread bigger.  Before anything has been removed they just
+ * have to be non-negative and within maxSpread of each other.  Each bucket is a
+ * doubly linked list threaded through arrays indexed by key, so nothing is
+ * allocated after the queue is made.  Keys must be in [0, num).
+ */
+public class BucketHeap implements Heap {
+	private int[] heads; // the first key in each bucket, or -1
+	private int[] next; // the key after each key in its bucket, or -1
+	private int[] prev; // the key before each key in its bucket, or -1 for the first
+	private int[] values; // each key's value, or -1 if it isn't in the queue
+	private int size = 0;
+	private int current = 0; // no value in the queue is smaller than this
+	private boolean removed = false; // whether anything has come out since the last clear
+	private int highest; // the largest value added before anything was removed
+
+	/*
+	 * Makes a queue for the keys 0 through num-1, whose values will never be more
+	 * than maxSpread apart.
+	 */
+	public BucketHeap(int num, int maxSpread) {
+		if(maxSpread < 0 || maxSpread == Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Bad spread for a bucket queue: " + maxSpread);
+		heads = new int[maxSpread + 1];
+		for(int i = 0; i < heads.length; ++i)
+			heads[i] = -1;
+		next = new int[num];
+		prev = new int[num];
+		values = new int[num];
+		for(int i = 0; i < num; ++i)
+			values[i] = -1;
+	}
+
+	private int bucket(int value) {
+		return value % heads.length;
+	}
+
+	private void link(int key, int value) {
+		if(!removed && value >= 0) {
+			// until something comes out, the window can still slide to fit
+			if(size == 0) {
+				current = value;
+				highest = value;
+			}
+			else if(value < current && highest - value < heads.length)
+				current = value;
+			else if(value > highest && value - current < heads.length)
+				highest = value;
+		}
+		if(value < current || value - current >= heads.length)
+			throw new IllegalArgumentException("Value " + value + " is outside of the window [" + current + ", " + (current + heads.length - 1) + "]");
+		values[key] = value;
+		int b = bucket(value);
+		int head = heads[b];
+		next[key] = head;
+		prev[key] = -1;
+		if(head >= 0)
+			prev[head] = key;
+		heads[b] = key;
+	}
+
+	private void unlink(int key) {
+		int n = next[key];
+		int p = prev[key];
+		if(p >= 0)
+			next[p] = n;
+		else
+			heads[bucket(values[key])] = n;
+		if(n >= 0)
+			prev[n] = p;
+		values[key] = -1;
+	}
+
+	/*
+	 * Steps current forward to the first non-empty bucket.  Since nothing in the
+	 * queue is more than maxSpread past current, we never have to go all the way
+	 * around.
+	 */
+	private void advance() {
+		while(heads[bucket(current)] < 0)
+			current++;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Heap#dequeue()
+	 */
+	public int dequeue() {
+		if(size == 0)
+			return -1;
+		advance();
+		int top = heads[bucket(current)];
+		unlink(top);
+		size--;
+		removed = true;
+		return top;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Heap#add(int, int)
+	 */
+	public void add(int key, int value) {
+		if(values[key] >= 0)
+			throw new IllegalArgumentException("Key " + key + " is already in the heap");
+		link(key, value);
+		size++;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Heap#updateKey(int, int)
+	 */
+	public void updateKey(int key, int newValue) {
+		if(values[key] < 0)
+			throw new IllegalArgumentException("Key " + key + " is not in the heap");
+		unlink(key);
+		link(key, newValue);
+	}
+
+	/*
+	 * Empties the queue in time proportional to the number of keys left in it, and
+	 * lets the next values added start a new window.
+	 */
+	public void clear() {
+		while(size > 0)
+			dequeue();
+		removed = false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Heap#isEmpty()
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Heap#hasKey(int)
+	 */
+	public boolean hasKey(int key) {
+		return values[key] >= 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Heap#peekTopValue()
+	 */
+	public int peekTopValue() {
+		if(size == 0)
+			throw new IllegalStateException("The heap is empty");
+		advance();
+		return current;
+	}
+
+	/*
+	 * Returns -1 if the heap is empty.
+	 * (non-Javadoc)
+	 * @see Heap#peekTop()
+	 */
+	public int peekTop() {
+		if(size == 0)
+			return -1;
+		advance();
+		return heads[bucket(current)];
+	}
+
+	/*
+	 * Returns Integer.MAX_VALUE/4 for keys that aren't in the heap, like FixedHeap.
+	 * (non-Javadoc)
+	 * @see Heap#getValue(int)
+	 */
+	public int getValue(int key) {
+		if(values[key] < 0)
+			return Integer.MAX_VALUE/4;
+		return values[key];
+	}
+}
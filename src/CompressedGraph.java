@@ -0,0 +1,393 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * A read-only Graph for very large sparse graphs, which squeezes each row into as
+ * few bytes as it can.  Rows are sorted, so instead of storing each neighbor we
+ * store the gap from the one before, and write every number as a varint: seven bits
+ * per byte, with the high bit set on every byte but the last.  Most gaps fit in a
+ * byte or two, where CsrGraph spends four on every target.  The weights go in a
+ * separate stream of zig-zag varints (so small negative weights stay small too),
+ * and if every edge has the same weight that stream is left out altogether.
+ *
+ * Row u of the adjacency stream is laid out as:
+ * 	varint		degree
+ * 	varint		zig-zag of (first target - u)
+ * 	varint		(target - previous target - 1), for each remaining edge
+ *
+ * Rows can only be decoded from the front, so to find one quickly we remember
+ * where every 2^SAMPLE_BITS-th row starts in each stream and skip forward from the
+ * closest one.  Reading the rows in order, which is what searches mostly do, picks
+ * up where the last row left off without skipping anything.
+ */
+public class CompressedGraph extends Graph {
+	private static final int SAMPLE_BITS = 5;
+	private static final int SAMPLE_MASK = (1 << SAMPLE_BITS) - 1;
+	private int numVerts;
+	private long numEdges;
+	private byte[] adjacency;
+	private byte[] weights; // null if every edge weighs uniformWeight
+	private int uniformWeight;
+	private int[] rowSamples; // where row (i << SAMPLE_BITS) starts in adjacency
+	private int[] weightSamples; // and where its weights start in weights
+	private int numNegEdges = 0;
+
+	/*
+	 * Compresses a copy of the input graph.  Graphs other than CsrGraphs are
+	 * converted to one first, to get their rows sorted.
+	 */
+	public CompressedGraph(Graph g) {
+		if(!(g instanceof CsrGraph) && !(g instanceof MappedGraph))
+			g = new CsrGraph(g);
+		numVerts = g.numVertices();
+		NeighborCursor c = g.cursor();
+		// see whether we can get away without storing the weights
+		boolean uniform = true;
+		boolean first = true;
+		for(int u = 0; u < numVerts && uniform; ++u) {
+			c.reset(u);
+			for(int v = c.nextTarget(); v >= 0; v = c.nextTarget()) {
+				if(first) {
+					uniformWeight = c.weight();
+					first = false;
+				}
+				else if(c.weight() != uniformWeight) {
+					uniform = false;
+					break;
+				}
+			}
+		}
+		ByteWriter adj = new ByteWriter();
+		ByteWriter wts = uniform ? null : new ByteWriter();
+		rowSamples = new int[(numVerts >>> SAMPLE_BITS) + 1];
+		weightSamples = new int[rowSamples.length];
+		for(int u = 0; u < numVerts; ++u) {
+			if((u & SAMPLE_MASK) == 0) {
+				rowSamples[u >>> SAMPLE_BITS] = adj.size;
+				weightSamples[u >>> SAMPLE_BITS] = uniform ? 0 : wts.size;
+			}
+			adj.writeVarint(g.degree(u));
+			c.reset(u);
+			int prev = -1;
+			for(int v = c.nextTarget(); v >= 0; v = c.nextTarget()) {
+				if(prev < 0)
+					adj.writeVarint(zigzag(v - u));
+				else
+					adj.writeVarint(v - prev - 1);
+				prev = v;
+				int w = c.weight();
+				if(w < 0)
+					numNegEdges++;
+				if(!uniform)
+					wts.writeVarint(zigzag(w));
+				numEdges++;
+			}
+		}
+		adjacency = adj.toArray();
+		weights = uniform ? null : wts.toArray();
+	}
+
+	private static int zigzag(int x) {
+		return (x << 1) ^ (x >> 31);
+	}
+	private static int unzigzag(int x) {
+		return (x >>> 1) ^ -(x & 1);
+	}
+
+	/*
+	 * A growable byte array to encode into.
+	 */
+	private static class ByteWriter {
+		byte[] buf = new byte[1024];
+		int size = 0;
+		void writeVarint(int x) {
+			if(size + 5 > buf.length) {
+				if(buf.length >= Integer.MAX_VALUE - 16)
+					throw new IllegalArgumentException("Graph is too large to compress into one array");
+				buf = Arrays.copyOf(buf, (int)Math.min(Integer.MAX_VALUE - 16, buf.length * 2L));
+			}
+			while((x & ~0x7f) != 0) {
+				buf[size++] = (byte)((x & 0x7f) | 0x80);
+				x >>>= 7;
+			}
+			buf[size++] = (byte)x;
+		}
+		byte[] toArray() {
+			return Arrays.copyOf(buf, size);
+		}
+	}
+
+	/*
+	 * A cursor over the two streams, which also knows how to find a row.  All of
+	 * the decoding happens here; the rest of the class just drives one of these.
+	 */
+	private class RowDecoder extends NeighborCursor {
+		private int pos; // the next byte to read in adjacency
+		private int wpos; // the next byte to read in weights
+		private int nextRow = -1; // the row that starts at pos, once a row is finished
+		private int u;
+		private int remaining; // edges left in the current row
+		private int target;
+		private int weight;
+		private int end; // where the varint decode last read ended
+
+		public void reset(int row) {
+			if(row == nextRow) {
+				// carry on from the row before, skipping whatever the caller didn't read
+				skipEdges(remaining);
+			}
+			else {
+				int s = row >>> SAMPLE_BITS;
+				pos = rowSamples[s];
+				wpos = weightSamples[s];
+				for(int r = s << SAMPLE_BITS; r < row; ++r)
+					skipEdges(readVarint());
+			}
+			u = row;
+			remaining = readVarint();
+			target = -1;
+			nextRow = row + 1;
+		}
+
+		public int nextTarget() {
+			if(remaining == 0)
+				return -1;
+			remaining--;
+			if(target < 0)
+				target = u + unzigzag(readVarint());
+			else
+				target += readVarint() + 1;
+			if(weights == null)
+				weight = uniformWeight;
+			else {
+				weight = unzigzag(decode(weights, wpos));
+				wpos = end;
+			}
+			return target;
+		}
+
+		public int weight() {
+			return weight;
+		}
+
+		private int readVarint() {
+			int x = decode(adjacency, pos);
+			pos = end;
+			return x;
+		}
+
+		// Decodes the varint at stream[at], leaving where it ends in end
+		private int decode(byte[] stream, int at) {
+			int x = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = stream[at++];
+				x |= (b & 0x7f) << shift;
+				shift += 7;
+			} while(b < 0);
+			end = at;
+			return x;
+		}
+
+		// Skips the next count edges in both streams
+		private void skipEdges(int count) {
+			pos = skipVarints(adjacency, pos, count);
+			if(weights != null)
+				wpos = skipVarints(weights, wpos, count);
+		}
+
+		// Every varint ends with the one byte that has its high bit clear
+		private int skipVarints(byte[] stream, int at, int count) {
+			while(count > 0) {
+				if(stream[at++] >= 0)
+					count--;
+			}
+			return at;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#cursor()
+	 */
+	public NeighborCursor cursor() {
+		return new RowDecoder();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#degree(int)
+	 */
+	public int degree(int u) {
+		return seek(u).remaining;
+	}
+
+	/*
+	 * A new decoder at the start of row u.  Looking up single rows this way means
+	 * decoding forward from the closest sample each time, so passes over the
+	 * whole graph should use one cursor in row order instead, as edgeArrays and
+	 * getAdjList do.
+	 */
+	private RowDecoder seek(int u) {
+		RowDecoder d = new RowDecoder();
+		d.reset(u);
+		return d;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#forEachNeighbor(int, IntIntConsumer)
+	 */
+	public void forEachNeighbor(int u, IntIntConsumer action) {
+		RowDecoder d = seek(u);
+		for(int v = d.nextTarget(); v >= 0; v = d.nextTarget())
+			action.accept(v, d.weight());
+	}
+
+	/*
+	 * Decodes row u until it reaches or passes v, which is fine since rows are short.
+	 * (non-Javadoc)
+	 * @see Graph#edgeWeight(int, int)
+	 */
+	public int edgeWeight(int u, int v) {
+		RowDecoder d = seek(u);
+		for(int t = d.nextTarget(); t >= 0 && t <= v; t = d.nextTarget()) {
+			if(t == v)
+				return d.weight();
+		}
+		return 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#edgeExists(int, int)
+	 */
+	public boolean edgeExists(int u, int v) {
+		RowDecoder d = seek(u);
+		for(int t = d.nextTarget(); t >= 0 && t <= v; t = d.nextTarget()) {
+			if(t == v)
+				return true;
+		}
+		return false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#addEdge(int, int, int, boolean)
+	 */
+	public void addEdge(int u, int v, int weight, boolean dir) {
+		throw new UnsupportedOperationException("CompressedGraph is read-only; build it from a mutable graph instead");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#changeEdge(int, int, int, boolean)
+	 */
+	public void changeEdge(int u, int v, int weight, boolean dir) {
+		throw new UnsupportedOperationException("CompressedGraph is read-only; build it from a mutable graph instead");
+	}
+
+	/*
+	 * Decodes every row in order with one cursor, which never has to skip
+	 * forward from a sample, into arrays sized from the edge count we already
+	 * know.
+	 * (non-Javadoc)
+	 * @see Graph#edgeArrays()
+	 */
+	public EdgeArrays edgeArrays() {
+		if(numEdges > Integer.MAX_VALUE - 8)
+			throw new IllegalStateException("Too many edges for EdgeArrays: " + numEdges);
+		int m = (int)numEdges;
+		int[] us = new int[m];
+		int[] vs = new int[m];
+		int[] ws = new int[m];
+		int next = 0;
+		RowDecoder d = new RowDecoder();
+		for(int u = 0; u < numVerts; ++u) {
+			d.reset(u);
+			for(int v = d.nextTarget(); v >= 0; v = d.nextTarget()) {
+				us[next] = u;
+				vs[next] = v;
+				ws[next] = d.weight();
+				next++;
+			}
+		}
+		return new EdgeArrays(us, vs, ws);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#getAdjList()
+	 */
+	public Map<Integer,Integer>[] getAdjList() {
+		Map<Integer,Integer>[] ret = new Map[numVerts];
+		RowDecoder d = new RowDecoder();
+		for(int u = 0; u < numVerts; ++u) {
+			ret[u] = new LinkedHashMap<Integer,Integer>();
+			d.reset(u);
+			for(int v = d.nextTarget(); v >= 0; v = d.nextTarget())
+				ret[u].put(v, d.weight());
+		}
+		return ret;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#getAdjMatrix()
+	 */
+	public int[][] getAdjMatrix() {
+		int[][] ret = new int[numVerts][numVerts];
+		RowDecoder d = new RowDecoder();
+		for(int u = 0; u < numVerts; ++u) {
+			d.reset(u);
+			for(int v = d.nextTarget(); v >= 0; v = d.nextTarget())
+				ret[u][v] = d.weight();
+		}
+		return ret;
+	}
+
+	/*
+	 * A CompressedGraph never changes, so it's already its own snapshot.
+	 * (non-Javadoc)
+	 * @see Graph#snapshot()
+	 */
+	public Graph snapshot() {
+		return this;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#numVertices()
+	 */
+	public int numVertices() {
+		return numVerts;
+	}
+
+	/*
+	 * Returns the number of directed edges stored.
+	 */
+	public long numEdges() {
+		return numEdges;
+	}
+
+	/*
+	 * Returns roughly how many bytes the compressed graph takes up, not counting
+	 * object headers.
+	 */
+	public long sizeInBytes() {
+		long size = adjacency.length + 8L * rowSamples.length;
+		if(weights != null)
+			size += weights.length;
+		return size;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#hasNegativeEdges()
+	 */
+	public boolean hasNegativeEdges() {
+		return numNegEdges > 0;
+	}
+}
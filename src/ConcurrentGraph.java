@@ -0,0 +1,509 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * A version of ExpandableGraph that any number of threads can add to and read
+ * from at once.  Each vertex's out-edges live in their own IntIntMap, and the rows
+ * are guarded by a fixed set of striped read/write locks, so writers only get in
+ * each other's way when they touch rows that share a stripe.  The rows are kept
+ * in segments of 2^SEGMENT_BITS that are never moved once they're made, so growing
+ * the graph to make room for new vertices only copies the small directory of
+ * segments, and never blocks anyone working on the existing rows.  The vertex
+ * and negative edge counts are atomic.
+ *
+ * Reading a row (through a cursor, say) while it's being written gives either the
+ * old row or the new one, but a search over the whole graph can see some writes
+ * and not others; take a snapshot for anything that needs a consistent view.
+ * Undirected edges are written to both rows at once, so a snapshot always has
+ * both directions of one or neither.
+ * 
+ * Snapshots are copy-on-write.  Taking one starts a new epoch, and the first write
+ * to each row in the new epoch copies the row and leaves the old one behind for
+ * the snapshot, so writers never wait for the snapshot to finish copying.
+ */
+public class ConcurrentGraph extends Graph {
+	private static final int STRIPES = 64; // must be a power of two
+	private static final int SEGMENT_BITS = 12;
+	private static final int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+	private final ReentrantReadWriteLock[] locks = new ReentrantReadWriteLock[STRIPES];
+	// segments[s][i] is the row of vertex (s << SEGMENT_BITS) + i, or null if it has
+	// no edges yet.  Only the directory is ever replaced, never the segments.
+	private volatile Row[][] segments = new Row[0][];
+	private final Object growLock = new Object();
+	private final AtomicInteger numVerts = new AtomicInteger();
+	private final AtomicInteger numNegEdges = new AtomicInteger();
+	private final AtomicInteger version = new AtomicInteger();
+	private final Object snapshotLock = new Object();
+	private int epoch = 0; // guarded by snapshotLock
+	private volatile Capture capture; // the snapshot being taken, if there is one
+	private static final Row EMPTY = new Row(0);
+	
+	/*
+	 * A row, stamped with the epoch it was made in.
+	 */
+	private static class Row extends IntIntMap {
+		final int epoch;
+		Row(int epoch) {
+			this.epoch = epoch;
+		}
+		Row(IntIntMap other, int epoch) {
+			super(other);
+			this.epoch = epoch;
+		}
+	}
+	
+	/*
+	 * The state of a snapshot in progress: the rows as they were when it started.
+	 * Whoever gets to a row first, the snapshot or the first writer of the new
+	 * epoch, fills in its slot.
+	 */
+	private static class Capture {
+		final int epoch;
+		final int capacity; // rows from here on aren't needed
+		final AtomicReferenceArray<Row> rows;
+		Capture(int epoch, int capacity) {
+			this.epoch = epoch;
+			this.capacity = capacity;
+			rows = new AtomicReferenceArray<Row>(capacity);
+		}
+	}
+
+	// Gives an initial number of vertices to start with
+	public ConcurrentGraph(int n) {
+		for(int i = 0; i < STRIPES; ++i)
+			locks[i] = new ReentrantReadWriteLock();
+		if(n > 0)
+			ensureVertex(n - 1);
+	}
+
+	// Default constructor
+	public ConcurrentGraph() {
+		this(0);
+	}
+
+	// Sets this graph to have the same structure as the input graph
+	public ConcurrentGraph(Graph g) {
+		this(g.numVertices());
+		NeighborCursor c = g.cursor();
+		for(int u = 0; u < g.numVertices(); ++u) {
+			c.reset(u);
+			for(int v = c.nextTarget(); v >= 0; v = c.nextTarget())
+				addEdge(u, v, c.weight(), true);
+		}
+	}
+
+	private ReentrantReadWriteLock lock(int u) {
+		return locks[u & (STRIPES - 1)];
+	}
+
+	/*
+	 * Write-locks the rows of u and v together, for an undirected write, taking
+	 * the stripes in index order so two such writers can't deadlock.
+	 */
+	private void lockBoth(int u, int v) {
+		int a = u & (STRIPES - 1);
+		int b = v & (STRIPES - 1);
+		locks[Math.min(a, b)].writeLock().lock();
+		if(a != b)
+			locks[Math.max(a, b)].writeLock().lock();
+	}
+	private void unlockBoth(int u, int v) {
+		int a = u & (STRIPES - 1);
+		int b = v & (STRIPES - 1);
+		if(a != b)
+			locks[Math.max(a, b)].writeLock().unlock();
+		locks[Math.min(a, b)].writeLock().unlock();
+	}
+
+	/*
+	 * Makes sure there's a row for vertex v, growing the directory if needed, and
+	 * bumps the vertex count up to include it.
+	 */
+	private void ensureVertex(int v) {
+		if(v < 0)
+			throw new IllegalArgumentException("Negative vertex " + v);
+		int seg = v >>> SEGMENT_BITS;
+		if(seg >= segments.length) {
+			synchronized(growLock) {
+				Row[][] old = segments;
+				if(seg >= old.length) {
+					Row[][] dir = new Row[Math.max(seg + 1, old.length * 2)][];
+					System.arraycopy(old, 0, dir, 0, old.length);
+					for(int i = old.length; i < dir.length; ++i)
+						dir[i] = new Row[1 << SEGMENT_BITS];
+					segments = dir;
+				}
+			}
+		}
+		int n = numVerts.get();
+		while(n <= v && !numVerts.compareAndSet(n, v + 1))
+			n = numVerts.get();
+	}
+
+	/*
+	 * Returns the row of u, which may be null.  The caller must hold u's lock.
+	 */
+	private Row row(int u) {
+		return segments[u >>> SEGMENT_BITS][u & SEGMENT_MASK];
+	}
+
+	/*
+	 * Returns the row of u, ready to be changed: if a snapshot is being taken and
+	 * still needs this row, the old row is handed to the snapshot and replaced
+	 * with a copy.  The caller must hold u's write lock, and have read cap from
+	 * capture after taking it.  A write to two rows reads it once for both, so a
+	 * snapshot gets either both changes or neither.
+	 */
+	private Row rowForWrite(int u, Capture cap) {
+		Row[] seg = segments[u >>> SEGMENT_BITS];
+		Row r = seg[u & SEGMENT_MASK];
+		if(cap != null && u < cap.capacity && (r == null || r.epoch < cap.epoch)) {
+			cap.rows.compareAndSet(u, null, r == null ? EMPTY : r);
+			r = r == null ? new Row(cap.epoch) : new Row(r, cap.epoch);
+			seg[u & SEGMENT_MASK] = r;
+		}
+		else if(r == null) {
+			r = new Row(cap == null ? 0 : cap.epoch);
+			seg[u & SEGMENT_MASK] = r;
+		}
+		return r;
+	}
+	
+	/*
+	 * Returns an immutable copy of the graph as it was at one instant, without
+	 * stopping the writers.  Any write that finishes before this is called is in
+	 * the snapshot, and any that starts after it returns is not.  It takes O(V+E)
+	 * time, and the writers only ever wait for it while it reads a row reference
+	 * under that row's lock.
+	 * (non-Javadoc)
+	 * @see Graph#snapshot()
+	 */
+	public Graph snapshot() {
+		synchronized(snapshotLock) {
+			// The vertex count has to be read after the capture is published, so that
+			// every vertex a write made before then is counted.  If that count has
+			// outgrown the capture, the directory grew under us and we start again.
+			Capture cap;
+			int n;
+			do {
+				cap = new Capture(++epoch, segments.length << SEGMENT_BITS);
+				capture = cap;
+				n = numVerts.get();
+			} while(n > cap.capacity);
+			// Claim every row the writers haven't claimed already.  Taking the read
+			// lock just waits out any write that started before the capture.
+			for(int u = 0; u < n; ++u) {
+				ReentrantReadWriteLock.ReadLock r = lock(u).readLock();
+				r.lock();
+				try {
+					Row row = row(u);
+					cap.rows.compareAndSet(u, null, row == null ? EMPTY : row);
+				}
+				finally {
+					r.unlock();
+				}
+			}
+			long m = 0;
+			for(int u = 0; u < n; ++u)
+				m += cap.rows.get(u).size();
+			if(m > Integer.MAX_VALUE - 8)
+				throw new IllegalStateException("Too many edges to snapshot: " + m);
+			int[] us = new int[(int)m];
+			int[] vs = new int[(int)m];
+			int[] ws = new int[(int)m];
+			int k = 0;
+			for(int u = 0; u < n; ++u) {
+				Row row = cap.rows.get(u);
+				for(int i = row.nextSlot(0); i >= 0; i = row.nextSlot(i+1)) {
+					us[k] = u;
+					vs[k] = row.keyAt(i);
+					ws[k] = row.valueAt(i);
+					k++;
+				}
+			}
+			// Writers keep copying the rows we claimed until we let go here, after
+			// which they can go back to changing rows in place.
+			capture = null;
+			return new CsrGraph(n, us, vs, ws, k);
+		}
+	}
+
+	private void checkVertex(int u) {
+		if(u < 0 || u >= numVerts.get())
+			throw new IndexOutOfBoundsException("No vertex " + u + " in a graph with " + numVerts.get() + " vertices");
+	}
+
+	/*
+	 * Adds the edge, growing the graph if either endpoint is new.  An undirected
+	 * edge goes in both rows under both their locks, so no snapshot sees only
+	 * one direction of it.
+	 * (non-Javadoc)
+	 * @see Graph#addEdge(int, int, int, boolean)
+	 */
+	public void addEdge(int u, int v, int weight, boolean dir) {
+		ensureVertex(Math.max(u, v));
+		int added = 0;
+		if(dir) {
+			ReentrantReadWriteLock.WriteLock w = lock(u).writeLock();
+			w.lock();
+			try {
+				if(rowForWrite(u, capture).putIfAbsent(v, weight))
+					added++;
+			}
+			finally {
+				w.unlock();
+			}
+		}
+		else {
+			lockBoth(u, v);
+			try {
+				Capture cap = capture;
+				if(rowForWrite(u, cap).putIfAbsent(v, weight)) {
+					added++;
+					if(u != v && rowForWrite(v, cap).putIfAbsent(u, weight))
+						added++;
+				}
+			}
+			finally {
+				unlockBoth(u, v);
+			}
+		}
+		for(int i = 0; i < added; ++i) {
+			if(weight < 0)
+				numNegEdges.incrementAndGet();
+			modified();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#changeEdge(int, int, int, boolean)
+	 */
+	public void changeEdge(int u, int v, int weight, boolean dir) {
+		checkVertex(u);
+		checkVertex(v);
+		int old;
+		int oldBack = 0;
+		boolean both = !dir && u != v;
+		if(both)
+			lockBoth(u, v);
+		else
+			lock(u).writeLock().lock();
+		try {
+			Capture cap = capture;
+			old = rowForWrite(u, cap).put(v, weight, 0);
+			if(both)
+				oldBack = rowForWrite(v, cap).put(u, weight, 0);
+		}
+		finally {
+			if(both)
+				unlockBoth(u, v);
+			else
+				lock(u).writeLock().unlock();
+		}
+		countChange(old, weight);
+		if(both)
+			countChange(oldBack, weight);
+	}
+
+	// Keeps the negative edge count right after an edge went from old to weight
+	private void countChange(int old, int weight) {
+		if(weight < 0 && old >= 0)
+			numNegEdges.incrementAndGet();
+		else if(weight >= 0 && old < 0)
+			numNegEdges.decrementAndGet();
+		modified();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#edgeWeight(int, int)
+	 */
+	public int edgeWeight(int u, int v) {
+		checkVertex(u);
+		ReentrantReadWriteLock.ReadLock r = lock(u).readLock();
+		r.lock();
+		try {
+			Row row = row(u);
+			return row == null ? 0 : row.get(v, 0);
+		}
+		finally {
+			r.unlock();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#edgeExists(int, int)
+	 */
+	public boolean edgeExists(int u, int v) {
+		checkVertex(u);
+		ReentrantReadWriteLock.ReadLock r = lock(u).readLock();
+		r.lock();
+		try {
+			Row row = row(u);
+			return row != null && row.containsKey(v);
+		}
+		finally {
+			r.unlock();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#degree(int)
+	 */
+	public int degree(int u) {
+		checkVertex(u);
+		ReentrantReadWriteLock.ReadLock r = lock(u).readLock();
+		r.lock();
+		try {
+			Row row = row(u);
+			return row == null ? 0 : row.size();
+		}
+		finally {
+			r.unlock();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#cursor()
+	 */
+	public NeighborCursor cursor() {
+		return new CopyCursor();
+	}
+
+	/*
+	 * Copies each row out under its read lock, so the caller can take as long as it
+	 * likes over the edges without holding anyone up.  The copy buffers are reused
+	 * from row to row.
+	 */
+	private class CopyCursor extends NeighborCursor {
+		private int[] targets = new int[16];
+		private int[] weights = new int[16];
+		private int size;
+		private int next;
+		public void reset(int u) {
+			checkVertex(u);
+			ReentrantReadWriteLock.ReadLock r = lock(u).readLock();
+			r.lock();
+			try {
+				Row row = row(u);
+				size = row == null ? 0 : row.size();
+				if(size > targets.length) {
+					targets = new int[Math.max(size, targets.length * 2)];
+					weights = new int[targets.length];
+				}
+				int k = 0;
+				if(row != null) {
+					for(int i = row.nextSlot(0); i >= 0; i = row.nextSlot(i+1)) {
+						targets[k] = row.keyAt(i);
+						weights[k] = row.valueAt(i);
+						k++;
+					}
+				}
+			}
+			finally {
+				r.unlock();
+			}
+			next = -1;
+		}
+		public int nextTarget() {
+			if(++next >= size) {
+				next = size;
+				return -1;
+			}
+			return targets[next];
+		}
+		public int weight() {
+			return weights[next];
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#getAdjList()
+	 */
+	public Map<Integer,Integer>[] getAdjList() {
+		int n = numVertices();
+		Map<Integer,Integer>[] ret = new Map[n];
+		NeighborCursor c = cursor();
+		for(int u = 0; u < n; ++u) {
+			ret[u] = new LinkedHashMap<Integer,Integer>();
+			c.reset(u);
+			for(int v = c.nextTarget(); v >= 0; v = c.nextTarget())
+				ret[u].put(v, c.weight());
+		}
+		return ret;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#getAdjMatrix()
+	 */
+	public int[][] getAdjMatrix() {
+		int n = numVertices();
+		int[][] ret = new int[n][n];
+		NeighborCursor c = cursor();
+		for(int u = 0; u < n; ++u) {
+			c.reset(u);
+			for(int v = c.nextTarget(); v >= 0; v = c.nextTarget()) {
+				if(v < n)
+					ret[u][v] = c.weight();
+			}
+		}
+		return ret;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#numVertices()
+	 */
+	public int numVertices() {
+		return numVerts.get();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#hasNegativeEdges()
+	 */
+	public boolean hasNegativeEdges() {
+		return numNegEdges.get() > 0;
+	}
+
+	/*
+	 * The version has to be bumped atomically, since many threads write at once.
+	 * (non-Javadoc)
+	 * @see Graph#version()
+	 */
+	public int version() {
+		return version.get();
+	}
+	protected void modified() {
+		version.incrementAndGet();
+	}
+
+	/*
+	 * Reads the edges out of a snapshot, since rows can change under a walk of
+	 * the live graph.
+	 * (non-Javadoc)
+	 * @see Graph#edgeArrays()
+	 */
+	public EdgeArrays edgeArrays() {
+		return snapshot().edgeArrays();
+	}
+
+	/*
+	 * Writers can add edges while others search, so searches mustn't rely on
+	 * maxEdgeWeight as a bound.
+	 * (non-Javadoc)
+	 * @see Graph#concurrentlyModifiable()
+	 */
+	public boolean concurrentlyModifiable() {
+		return true;
+	}
+}
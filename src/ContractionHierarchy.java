@@ -0,0 +1,845 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * A contraction hierarchy: a graph preprocessed so that shortest path queries
+ * only have to look at a few hundred vertices, however big the graph is.
+ *
+ * Preprocessing removes ("contracts") the vertices one at a time, from least to
+ * most important.  Removing v would break the shortest paths that go u -> v -> w,
+ * so for each such pair a shortcut edge u -> w is added, remembering v as its
+ * middle vertex, unless a short search from u (the witness search) finds a path
+ * to w no longer than the one through v.  The order vertices are removed in is
+ * their rank.  Every shortest path then goes up through the ranks and back
+ * down, so a query runs Dijkstra forwards from the source only over edges that go
+ * up, and backwards from the sink only over edges that come down, and takes the
+ * best place where they meet.  Shortcuts on the path found are unpacked back into
+ * the original edges through their middle vertices.
+ *
+ * The vertices are ordered by twice the number of edges removing them would add,
+ * less the number it would remove, plus how many of their neighbors are already
+ * gone and how deep in the hierarchy they'd be.  That keeps the hierarchy small
+ * and shallow, and spreads removals evenly over the graph.  Each
+ * round removes every vertex that comes before all of its neighbors in that
+ * order.  No two of them are neighbors, so their witness searches can all run at
+ * once, on separate threads, with the graph held still; then the shortcuts are
+ * added and the neighbors' places in the order updated, also in parallel.
+ *
+ * The hierarchy is only right for the graph as it was when it was built, so
+ * rebuild it after modifying the graph.  It can be saved to a file and loaded
+ * again, which is much faster than building it.  Queries are made through a
+ * Query, which keeps its working memory between queries, so each one only costs
+ * as much as the vertices it looks at.
+ */
+public class ContractionHierarchy {
+	private static final int MAGIC = 0x43484731; // "CHG1", at the start of every saved file
+	private static final int INF = Integer.MAX_VALUE/2;
+	private int numVerts;
+	private int[] rank;
+	// The edges from each vertex to higher-ranked vertices, in CSR form (see
+	// CsrGraph), each row sorted by target.  mid is a shortcut's middle vertex,
+	// or -1 for an edge of the original graph.
+	private int[] upOffsets;
+	private int[] upTargets;
+	private int[] upWeights;
+	private int[] upMids;
+	// And the edges into each vertex from higher-ranked vertices, sorted by source.
+	private int[] downOffsets;
+	private int[] downSources;
+	private int[] downWeights;
+	private int[] downMids;
+
+	/*
+	 * Builds the hierarchy for g.
+	 *
+	 * g: The graph, which mustn't have negative edges.
+	 * threads: How many threads to contract with.
+	 */
+	public ContractionHierarchy(Graph g, int threads) {
+		if(g.hasNegativeEdges())
+			throw new IllegalArgumentException("Contraction hierarchies don't work with negative edge weights!");
+		if(threads < 1)
+			throw new IllegalArgumentException("Need at least one thread to build a hierarchy");
+		new Contractor(g, threads).build(this);
+	}
+	public ContractionHierarchy(Graph g) {
+		this(g, Runtime.getRuntime().availableProcessors());
+	}
+	private ContractionHierarchy() {
+	}
+
+	public int numVertices() {
+		return numVerts;
+	}
+
+	/*
+	 * Returns where v came in the contraction order, from 0 for the first vertex
+	 * removed to numVertices()-1 for the last.
+	 */
+	public int rank(int v) {
+		return rank[v];
+	}
+
+	/*
+	 * Returns how many shortcut edges the hierarchy has on top of the original ones.
+	 */
+	public int numShortcuts() {
+		int count = 0;
+		for(int mid : upMids) {
+			if(mid >= 0)
+				count++;
+		}
+		for(int mid : downMids) {
+			if(mid >= 0)
+				count++;
+		}
+		return count;
+	}
+
+	/*
+	 * Makes a new query engine.  It takes O(V) memory, and is meant to be made
+	 * once and used for many queries, by one thread at a time; give each thread
+	 * its own.
+	 */
+	public Query newQuery() {
+		return new Query();
+	}
+
+	/*
+	 * Shorthands that make a new Query for a single lookup.  Use a Query of your
+	 * own for more than a few.
+	 */
+	public int distance(int source, int sink) {
+		return newQuery().distance(source, sink);
+	}
+	public int[] path(int source, int sink) {
+		return newQuery().path(source, sink);
+	}
+
+	/*
+	 * Writes the hierarchy to a file, for load to read back.
+	 */
+	public void save(File file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(numVerts);
+			writeArray(out, rank);
+			writeArray(out, upOffsets);
+			writeArray(out, upTargets);
+			writeArray(out, upWeights);
+			writeArray(out, upMids);
+			writeArray(out, downOffsets);
+			writeArray(out, downSources);
+			writeArray(out, downWeights);
+			writeArray(out, downMids);
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/*
+	 * Reads a hierarchy written by save.
+	 */
+	public static ContractionHierarchy load(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+		try {
+			if(in.readInt() != MAGIC)
+				throw new IOException(file + " is not a saved contraction hierarchy");
+			ContractionHierarchy ch = new ContractionHierarchy();
+			int n = in.readInt();
+			ch.numVerts = n;
+			ch.rank = readArray(in, n, file);
+			ch.upOffsets = readArray(in, n + 1, file);
+			int m = ch.upOffsets[n];
+			ch.upTargets = readArray(in, m, file);
+			ch.upWeights = readArray(in, m, file);
+			ch.upMids = readArray(in, m, file);
+			ch.downOffsets = readArray(in, n + 1, file);
+			m = ch.downOffsets[n];
+			ch.downSources = readArray(in, m, file);
+			ch.downWeights = readArray(in, m, file);
+			ch.downMids = readArray(in, m, file);
+			return ch;
+		}
+		catch(EOFException e) {
+			throw new IOException(file + " ends too soon", e);
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	private static void writeArray(DataOutputStream out, int[] a) throws IOException {
+		out.writeInt(a.length);
+		for(int x : a)
+			out.writeInt(x);
+	}
+	private static int[] readArray(DataInputStream in, int expected, File file) throws IOException {
+		int length = in.readInt();
+		if(length != expected || length < 0)
+			throw new IOException(file + " is corrupt: expected " + expected + " entries, found " + length);
+		int[] a = new int[length];
+		for(int i = 0; i < length; ++i)
+			a[i] = in.readInt();
+		return a;
+	}
+
+	// Binary search for the edge from v up to target, or -1 if there isn't one
+	private int findUp(int v, int target) {
+		int i = Arrays.binarySearch(upTargets, upOffsets[v], upOffsets[v+1], target);
+		return i >= 0 ? i : -1;
+	}
+	// and for the edge from source down to v
+	private int findDown(int v, int source) {
+		int i = Arrays.binarySearch(downSources, downOffsets[v], downOffsets[v+1], source);
+		return i >= 0 ? i : -1;
+	}
+
+	/*
+	 * Answers queries against the hierarchy.  Like SearchContext, it stamps each
+	 * entry with the number of the query that wrote it, instead of clearing its
+	 * arrays between queries.
+	 */
+	public class Query {
+		private int[] forwardDist = new int[numVerts];
+		private int[] backDist = new int[numVerts];
+		private int[] forwardEdge = new int[numVerts]; // the up edge each vertex was reached by, or -1
+		private int[] backEdge = new int[numVerts]; // the down edge each vertex was reached by, or -1
+		private int[] forwardPrev = new int[numVerts];
+		private int[] backNext = new int[numVerts];
+		private int[] forwardStamp = new int[numVerts];
+		private int[] backStamp = new int[numVerts];
+		private int epoch = 0;
+		private DaryHeap forwardHeap = new DaryHeap(numVerts);
+		private DaryHeap backHeap = new DaryHeap(numVerts);
+		private int best;
+		private int meet;
+		private int[] stack = new int[48]; // (from, to, mid) triples while unpacking
+
+		private Query() {
+		}
+
+		/*
+		 * Returns the length of the shortest path from source to sink, or
+		 * Integer.MAX_VALUE/2 if there isn't one.
+		 */
+		public int distance(int source, int sink) {
+			search(source, sink);
+			return best;
+		}
+
+		/*
+		 * Returns the shortest path from source to sink in the original graph, as
+		 * an array that starts with source and ends with sink like the one from
+		 * GraphAlgs.findPath, or null if there isn't one.
+		 */
+		public int[] path(int source, int sink) {
+			search(source, sink);
+			if(meet < 0)
+				return null;
+			// the hierarchy edges on the path, from source up to meet and down to sink
+			int up = 0;
+			for(int v = meet; v != source; v = forwardPrev[v])
+				up++;
+			int hops = up;
+			for(int v = meet; v != sink; v = backNext[v])
+				hops++;
+			int[] froms = new int[hops];
+			int[] tos = new int[hops];
+			int[] mids = new int[hops];
+			int i = up;
+			for(int v = meet; v != source; v = forwardPrev[v]) {
+				--i;
+				froms[i] = forwardPrev[v];
+				tos[i] = v;
+				mids[i] = upMids[forwardEdge[v]];
+			}
+			i = up;
+			for(int v = meet; v != sink; v = backNext[v]) {
+				froms[i] = v;
+				tos[i] = backNext[v];
+				mids[i] = downMids[backEdge[v]];
+				i++;
+			}
+			return unpack(source, froms, tos, mids, hops);
+		}
+
+		/*
+		 * Expands each shortcut into the two edges it stands for, until only edges
+		 * of the original graph are left.
+		 */
+		private int[] unpack(int source, int[] froms, int[] tos, int[] mids, int hops) {
+			int[] path = new int[Math.max(hops + 1, 16)];
+			int length = 0;
+			path[length++] = source;
+			for(int h = 0; h < hops; ++h) {
+				int top = 0;
+				stack = push(stack, top, froms[h], tos[h], mids[h]);
+				top += 3;
+				while(top > 0) {
+					top -= 3;
+					int from = stack[top];
+					int to = stack[top+1];
+					int mid = stack[top+2];
+					if(mid < 0) {
+						if(length == path.length)
+							path = Arrays.copyOf(path, length * 2);
+						path[length++] = to;
+						continue;
+					}
+					// from -> mid is an edge down into mid, and mid -> to one up out of it;
+					// push the second half first so the first comes off first
+					stack = push(stack, top, mid, to, upMids[findUp(mid, to)]);
+					top += 3;
+					stack = push(stack, top, from, mid, downMids[findDown(mid, from)]);
+					top += 3;
+				}
+			}
+			return Arrays.copyOf(path, length);
+		}
+
+		private int[] push(int[] s, int top, int from, int to, int mid) {
+			if(top + 3 > s.length)
+				s = Arrays.copyOf(s, s.length * 2);
+			s[top] = from;
+			s[top+1] = to;
+			s[top+2] = mid;
+			return s;
+		}
+
+		/*
+		 * Runs Dijkstra up from source and, backwards, up from sink, one vertex on
+		 * each side in turn.  A side stops once its closest waiting vertex is no
+		 * closer than the best path found, since everything it could still reach
+		 * is further away.
+		 */
+		private void search(int source, int sink) {
+			if(++epoch == Integer.MAX_VALUE) {
+				Arrays.fill(forwardStamp, 0);
+				Arrays.fill(backStamp, 0);
+				epoch = 1;
+			}
+			forwardHeap.clear();
+			backHeap.clear();
+			best = INF;
+			meet = -1;
+			reachForward(source, 0, source, -1);
+			forwardHeap.add(source, 0);
+			reachBack(sink, 0, sink, -1);
+			backHeap.add(sink, 0);
+			while(!forwardHeap.isEmpty() || !backHeap.isEmpty()) {
+				if(!forwardHeap.isEmpty()) {
+					if(forwardHeap.peekTopValue() >= best)
+						forwardHeap.clear();
+					else
+						settleForward();
+				}
+				if(!backHeap.isEmpty()) {
+					if(backHeap.peekTopValue() >= best)
+						backHeap.clear();
+					else
+						settleBack();
+				}
+			}
+		}
+
+		private void settleForward() {
+			int d = forwardHeap.peekTopValue();
+			int u = forwardHeap.dequeue();
+			if(backStamp[u] == epoch && d + backDist[u] < best) {
+				best = d + backDist[u];
+				meet = u;
+			}
+			// Stall on demand: if a higher vertex the search has already reached
+			// has an edge down to u that gets there sooner, then d isn't u's real
+			// distance, and nothing found through u can be on a shortest path.
+			for(int e = downOffsets[u]; e < downOffsets[u+1]; ++e) {
+				int v = downSources[e];
+				if(forwardStamp[v] == epoch && forwardDist[v] + downWeights[e] < d)
+					return;
+			}
+			for(int e = upOffsets[u]; e < upOffsets[u+1]; ++e) {
+				int v = upTargets[e];
+				int nd = d + upWeights[e];
+				if(forwardStamp[v] != epoch || nd < forwardDist[v]) {
+					boolean waiting = forwardStamp[v] == epoch;
+					reachForward(v, nd, u, e);
+					if(waiting)
+						forwardHeap.updateKey(v, nd);
+					else
+						forwardHeap.add(v, nd);
+				}
+			}
+		}
+
+		private void settleBack() {
+			int d = backHeap.peekTopValue();
+			int u = backHeap.dequeue();
+			if(forwardStamp[u] == epoch && d + forwardDist[u] < best) {
+				best = d + forwardDist[u];
+				meet = u;
+			}
+			for(int e = upOffsets[u]; e < upOffsets[u+1]; ++e) {
+				int v = upTargets[e];
+				if(backStamp[v] == epoch && backDist[v] + upWeights[e] < d)
+					return; // stalled, as above
+			}
+			for(int e = downOffsets[u]; e < downOffsets[u+1]; ++e) {
+				int v = downSources[e];
+				int nd = d + downWeights[e];
+				if(backStamp[v] != epoch || nd < backDist[v]) {
+					boolean waiting = backStamp[v] == epoch;
+					reachBack(v, nd, u, e);
+					if(waiting)
+						backHeap.updateKey(v, nd);
+					else
+						backHeap.add(v, nd);
+				}
+			}
+		}
+
+		private void reachForward(int v, int d, int prev, int edge) {
+			forwardDist[v] = d;
+			forwardPrev[v] = prev;
+			forwardEdge[v] = edge;
+			forwardStamp[v] = epoch;
+		}
+		private void reachBack(int v, int d, int next, int edge) {
+			backDist[v] = d;
+			backNext[v] = next;
+			backEdge[v] = edge;
+			backStamp[v] = epoch;
+		}
+	}
+
+	/*
+	 * The state of the graph while it's being contracted, and the threads doing it.
+	 */
+	private static class Contractor {
+		private static final byte REMAINING = 0;
+		private static final byte SELECTED = 1; // being contracted this round
+		private static final byte CONTRACTED = 2;
+		// How many vertices a witness search may settle.  Searches that only work
+		// out a vertex's priority can stop much sooner, since the priority only
+		// has to be roughly right.
+		private static final int WITNESS_LIMIT = 500;
+		private static final int ESTIMATE_LIMIT = 10;
+		private static final int BLOCK = 64; // vertices a thread takes at a time
+		private int n;
+		private EdgeList[] out; // the edges between vertices that haven't been contracted,
+		private EdgeList[] in; // and once v is contracted, its edges to higher ranks
+		private byte[] state;
+		private int[] priority;
+		private int[] deleted; // how many of each vertex's neighbors have been contracted
+		private int[] level; // how many contractions deep each vertex is
+		private int[] rank;
+		private int[] touchedIn; // the last round each vertex lost a neighbor in
+		private int round = 0;
+		private int threads;
+		private Witness[] witnesses; // one for each thread
+		private ExecutorService pool;
+
+		Contractor(Graph g, int threads) {
+			n = g.numVertices();
+			this.threads = threads;
+			out = new EdgeList[n];
+			in = new EdgeList[n];
+			for(int v = 0; v < n; ++v) {
+				out[v] = new EdgeList();
+				in[v] = new EdgeList();
+			}
+			NeighborCursor edges = g.cursor();
+			for(int u = 0; u < n; ++u) {
+				edges.reset(u);
+				for(int v = edges.nextTarget(); v >= 0; v = edges.nextTarget()) {
+					if(u != v) {
+						out[u].add(v, edges.weight(), -1);
+						in[v].add(u, edges.weight(), -1);
+					}
+				}
+			}
+			state = new byte[n];
+			priority = new int[n];
+			deleted = new int[n];
+			level = new int[n];
+			rank = new int[n];
+			touchedIn = new int[n];
+			Arrays.fill(touchedIn, -1);
+		}
+
+		/*
+		 * Contracts every vertex and stores the result in ch.
+		 */
+		void build(ContractionHierarchy ch) {
+			witnesses = new Witness[threads];
+			for(int t = 0; t < threads; ++t)
+				witnesses[t] = new Witness(n);
+			pool = Executors.newFixedThreadPool(threads);
+			try {
+				int[] remaining = new int[n];
+				for(int v = 0; v < n; ++v)
+					remaining[v] = v;
+				int numRemaining = n;
+				updatePriorities(remaining, numRemaining);
+				int nextRank = 0;
+				int[] selected = new int[n];
+				int[] touched = new int[n];
+				for(; numRemaining > 0; round++) {
+					int numSelected = 0;
+					for(int i = 0; i < numRemaining; ++i) {
+						int v = remaining[i];
+						if(comesFirst(v))
+							selected[numSelected++] = v;
+					}
+					for(int i = 0; i < numSelected; ++i)
+						state[selected[i]] = SELECTED;
+					List<IntList> shortcuts = run(selected, numSelected, new Task() {
+						void run(int v, Witness w, IntList found) {
+							shortcuts(v, w, found, WITNESS_LIMIT);
+						}
+					});
+					int numTouched = 0;
+					for(int i = 0; i < numSelected; ++i) {
+						int v = selected[i];
+						rank[v] = nextRank++;
+						state[v] = CONTRACTED;
+						numTouched = detach(v, out[v], in, touched, numTouched);
+						numTouched = detach(v, in[v], out, touched, numTouched);
+					}
+					for(IntList found : shortcuts) {
+						for(int i = 0; i < found.size; i += 4) {
+							int u = found.items[i];
+							int w = found.items[i+1];
+							int weight = found.items[i+2];
+							int mid = found.items[i+3];
+							out[u].addOrLower(w, weight, mid);
+							in[w].addOrLower(u, weight, mid);
+						}
+					}
+					updatePriorities(touched, numTouched);
+					int kept = 0;
+					for(int i = 0; i < numRemaining; ++i) {
+						if(state[remaining[i]] == REMAINING)
+							remaining[kept++] = remaining[i];
+					}
+					numRemaining = kept;
+				}
+			}
+			finally {
+				pool.shutdownNow();
+			}
+			store(ch);
+		}
+
+		/*
+		 * Removes v from the other end of each of its edges, and adds the vertices
+		 * there to touched, if they aren't already in it.
+		 */
+		private int detach(int v, EdgeList edges, EdgeList[] others, int[] touched, int numTouched) {
+			for(int i = 0; i < edges.size; ++i) {
+				int x = edges.targets[i];
+				others[x].remove(v);
+				deleted[x]++;
+				level[x] = Math.max(level[x], level[v] + 1);
+				if(touchedIn[x] != round) {
+					touchedIn[x] = round;
+					touched[numTouched++] = x;
+				}
+			}
+			return numTouched;
+		}
+
+		/*
+		 * Whether v comes before all of its neighbors in the order, with ties broken
+		 * by number, so no two neighbors ever both do.
+		 */
+		private boolean comesFirst(int v) {
+			return comesFirst(v, out[v]) && comesFirst(v, in[v]);
+		}
+		private boolean comesFirst(int v, EdgeList edges) {
+			for(int i = 0; i < edges.size; ++i) {
+				int x = edges.targets[i];
+				if(priority[x] < priority[v] || (priority[x] == priority[v] && x < v))
+					return false;
+			}
+			return true;
+		}
+
+		private void updatePriorities(int[] vs, int count) {
+			run(vs, count, new Task() {
+				void run(int v, Witness w, IntList found) {
+					int added = shortcuts(v, w, null, ESTIMATE_LIMIT);
+					priority[v] = 2 * (added - out[v].size - in[v].size) + deleted[v] + level[v];
+				}
+			});
+		}
+
+		/*
+		 * Works out which shortcuts contracting v needs, adding each to found as a
+		 * (from, to, weight, middle) quadruple if found isn't null, and returns how
+		 * many there are.  Witness searches avoid every vertex being contracted.
+		 */
+		private int shortcuts(int v, Witness w, IntList found, int maxSettled) {
+			EdgeList ins = in[v];
+			EdgeList outs = out[v];
+			int count = 0;
+			for(int i = 0; i < ins.size; ++i) {
+				int u = ins.targets[i];
+				int toV = ins.weights[i];
+				int limit = -1;
+				for(int j = 0; j < outs.size; ++j) {
+					if(outs.targets[j] != u)
+						limit = Math.max(limit, toV + outs.weights[j]);
+				}
+				if(limit < 0)
+					continue;
+				w.search(u, v, limit, maxSettled);
+				for(int j = 0; j < outs.size; ++j) {
+					int x = outs.targets[j];
+					int through = toV + outs.weights[j];
+					if(x != u && w.dist(x) > through) {
+						count++;
+						if(found != null) {
+							found.add(u);
+							found.add(x);
+							found.add(through);
+							found.add(v);
+						}
+					}
+				}
+			}
+			return count;
+		}
+
+		/*
+		 * Something to do to each of a list of vertices.
+		 */
+		private static abstract class Task {
+			abstract void run(int v, Witness w, IntList found);
+		}
+
+		/*
+		 * Runs task on vs[0..count) using every thread, each with its own Witness
+		 * and list of results, which are returned.
+		 */
+		private List<IntList> run(final int[] vs, final int count, final Task task) {
+			final AtomicInteger next = new AtomicInteger();
+			List<Future<IntList>> futures = new ArrayList<Future<IntList>>();
+			for(int t = 0; t < threads; ++t) {
+				final Witness w = witnesses[t];
+				futures.add(pool.submit(new Callable<IntList>() {
+					public IntList call() {
+						IntList found = new IntList();
+						int start;
+						while((start = next.getAndAdd(BLOCK)) < count) {
+							int end = Math.min(count, start + BLOCK);
+							for(int i = start; i < end; ++i)
+								task.run(vs[i], w, found);
+						}
+						return found;
+					}
+				}));
+			}
+			List<IntList> ret = new ArrayList<IntList>();
+			try {
+				for(Future<IntList> f : futures)
+					ret.add(f.get());
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while contracting", e);
+			}
+			catch(ExecutionException e) {
+				if(e.getCause() instanceof RuntimeException)
+					throw (RuntimeException)e.getCause();
+				throw new IllegalStateException("Contraction failed", e.getCause());
+			}
+			return ret;
+		}
+
+		/*
+		 * A bounded Dijkstra over the vertices that haven't been contracted, looking
+		 * for paths that make shortcuts unnecessary.
+		 */
+		private class Witness {
+			private int[] dist;
+			private int[] stamp;
+			private int epoch = 0;
+			private DaryHeap heap;
+
+			Witness(int n) {
+				dist = new int[n];
+				stamp = new int[n];
+				heap = new DaryHeap(n);
+			}
+
+			/*
+			 * Searches from source without going through avoid or anything being
+			 * contracted, until everything within limit is found or it's settled
+			 * WITNESS_LIMIT vertices.
+			 */
+			void search(int source, int avoid, int limit, int maxSettled) {
+				if(++epoch == Integer.MAX_VALUE) {
+					Arrays.fill(stamp, 0);
+					epoch = 1;
+				}
+				heap.clear();
+				dist[source] = 0;
+				stamp[source] = epoch;
+				heap.add(source, 0);
+				int settled = 0;
+				while(!heap.isEmpty() && settled < maxSettled) {
+					int d = heap.peekTopValue();
+					if(d > limit)
+						break;
+					int u = heap.dequeue();
+					settled++;
+					EdgeList edges = out[u];
+					for(int i = 0; i < edges.size; ++i) {
+						int x = edges.targets[i];
+						if(x == avoid || state[x] != REMAINING)
+							continue;
+						int nd = d + edges.weights[i];
+						if(nd < dist(x)) {
+							boolean waiting = stamp[x] == epoch;
+							dist[x] = nd;
+							stamp[x] = epoch;
+							if(waiting)
+								heap.updateKey(x, nd);
+							else
+								heap.add(x, nd);
+						}
+					}
+				}
+			}
+
+			int dist(int v) {
+				return stamp[v] == epoch ? dist[v] : INF;
+			}
+		}
+
+		/*
+		 * Packs the edges each vertex had left when it was contracted, which all go
+		 * to higher ranks, into the hierarchy's arrays.
+		 */
+		private void store(ContractionHierarchy ch) {
+			ch.numVerts = n;
+			ch.rank = rank;
+			ch.upOffsets = new int[n + 1];
+			ch.downOffsets = new int[n + 1];
+			for(int v = 0; v < n; ++v) {
+				ch.upOffsets[v+1] = ch.upOffsets[v] + out[v].size;
+				ch.downOffsets[v+1] = ch.downOffsets[v] + in[v].size;
+			}
+			ch.upTargets = new int[ch.upOffsets[n]];
+			ch.upWeights = new int[ch.upOffsets[n]];
+			ch.upMids = new int[ch.upOffsets[n]];
+			ch.downSources = new int[ch.downOffsets[n]];
+			ch.downWeights = new int[ch.downOffsets[n]];
+			ch.downMids = new int[ch.downOffsets[n]];
+			for(int v = 0; v < n; ++v) {
+				out[v].copySorted(ch.upTargets, ch.upWeights, ch.upMids, ch.upOffsets[v]);
+				in[v].copySorted(ch.downSources, ch.downWeights, ch.downMids, ch.downOffsets[v]);
+			}
+		}
+	}
+
+	/*
+	 * The edges at one end of a vertex while the graph is being contracted, as
+	 * parallel arrays in no particular order.
+	 */
+	private static class EdgeList {
+		int[] targets = new int[4];
+		int[] weights = new int[4];
+		int[] mids = new int[4];
+		int size = 0;
+
+		void add(int target, int weight, int mid) {
+			if(size == targets.length) {
+				targets = Arrays.copyOf(targets, size * 2);
+				weights = Arrays.copyOf(weights, size * 2);
+				mids = Arrays.copyOf(mids, size * 2);
+			}
+			targets[size] = target;
+			weights[size] = weight;
+			mids[size] = mid;
+			size++;
+		}
+
+		/*
+		 * Adds the edge, or if there's already one to target, lowers its weight if
+		 * the new one is shorter.
+		 */
+		void addOrLower(int target, int weight, int mid) {
+			for(int i = 0; i < size; ++i) {
+				if(targets[i] == target) {
+					if(weight < weights[i]) {
+						weights[i] = weight;
+						mids[i] = mid;
+					}
+					return;
+				}
+			}
+			add(target, weight, mid);
+		}
+
+		void remove(int target) {
+			for(int i = 0; i < size; ++i) {
+				if(targets[i] == target) {
+					size--;
+					targets[i] = targets[size];
+					weights[i] = weights[size];
+					mids[i] = mids[size];
+					return;
+				}
+			}
+		}
+
+		/*
+		 * Copies the edges into the arrays starting at from, sorted by target.
+		 */
+		void copySorted(int[] ts, int[] ws, int[] ms, int from) {
+			long[] order = new long[size];
+			for(int i = 0; i < size; ++i)
+				order[i] = ((long)targets[i] << 32) | i;
+			Arrays.sort(order);
+			for(int i = 0; i < size; ++i) {
+				int j = (int)order[i];
+				ts[from + i] = targets[j];
+				ws[from + i] = weights[j];
+				ms[from + i] = mids[j];
+			}
+		}
+	}
+
+	/*
+	 * A growable list of ints.
+	 */
+	private static class IntList {
+		int[] items = new int[16];
+		int size = 0;
+		void add(int x) {
+			if(size == items.length)
+				items = Arrays.copyOf(items, size * 2);
+			items[size++] = x;
+		}
+	}
+}
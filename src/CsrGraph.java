@@ -0,0 +1,315 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * A read-only version of the Graph class stored in compressed sparse row (CSR)
+ * form.  All of the edges live in three primitive arrays: the out-edges of
+ * vertex u are targets[offsets[u]] through targets[offsets[u+1]-1], with the
+ * matching weights at the same indices of weights.  Each row is kept sorted by
+ * target, so looking up a single edge is a binary search.  This costs about
+ * 8 bytes per edge and 4 per vertex, compared to 4*n^2 bytes for FixedGraph or
+ * a pair of boxed Integers and a hash entry per edge for ExpandableGraph, which
+ * makes it the representation to use for big, sparse graphs that are built once
+ * and then only queried.
+ */
+public class CsrGraph extends Graph {
+	private int numVerts;
+	private int[] offsets; // row u occupies [offsets[u], offsets[u+1]) of the arrays below
+	private int[] targets;
+	private int[] weights;
+	private int numNegEdges = 0;
+
+	/*
+	 * Copies the structure of the input graph.  This takes O(V+E) time on top of
+	 * whatever it costs the input graph to list its edges (see edgeArrays), which
+	 * graphs that can do better than walking row by row override.
+	 */
+	public CsrGraph(Graph g) {
+		EdgeArrays edges = g.edgeArrays();
+		// read after the edges, since a graph being written only ever grows
+		int n = g.numVertices();
+		build(n, edges.u, edges.v, edges.weight, edges.size(), DuplicatePolicy.KEEP_FIRST);
+	}
+
+	/*
+	 * Builds a graph on n vertices from a list of directed edges, stored as three
+	 * parallel arrays, of which only the first m entries are used.  If the same
+	 * edge appears more than once, the first copy wins, the same as repeated calls
+	 * to addEdge.
+	 */
+	public CsrGraph(int n, int[] us, int[] vs, int[] ws, int m) {
+		build(n, us, vs, ws, m, DuplicatePolicy.KEEP_FIRST);
+	}
+	
+	/*
+	 * The same as above, but with a choice of what to do about repeated edges.
+	 */
+	public CsrGraph(int n, int[] us, int[] vs, int[] ws, int m, DuplicatePolicy duplicates) {
+		build(n, us, vs, ws, m, duplicates);
+	}
+
+	/*
+	 * Sorts the edges into rows with two counting sorts, which keeps the whole
+	 * construction at O(V+E) no matter how the input is ordered.  The first pass
+	 * groups the edges by target; walking those groups in order and dealing each
+	 * edge out to its source's row then leaves every row sorted by target.
+	 */
+	private void build(int n, int[] us, int[] vs, int[] ws, int m, DuplicatePolicy duplicates) {
+		numVerts = n;
+		int[] byTarget = new int[n+1];
+		for(int e = 0; e < m; ++e) {
+			if(us[e] < 0 || us[e] >= n || vs[e] < 0 || vs[e] >= n)
+				throw new IllegalArgumentException("Edge " + us[e] + " " + vs[e] + " is outside of a graph with " + n + " vertices");
+			byTarget[vs[e]+1]++;
+		}
+		for(int v = 0; v < n; ++v)
+			byTarget[v+1] += byTarget[v];
+		int[] order = new int[m];
+		for(int e = 0; e < m; ++e)
+			order[byTarget[vs[e]]++] = e;
+
+		offsets = new int[n+1];
+		for(int e = 0; e < m; ++e)
+			offsets[us[e]+1]++;
+		for(int u = 0; u < n; ++u)
+			offsets[u+1] += offsets[u];
+		int[] fill = new int[n];
+		System.arraycopy(offsets, 0, fill, 0, n);
+		targets = new int[m];
+		weights = new int[m];
+		for(int i = 0; i < m; ++i) {
+			int e = order[i];
+			int pos = fill[us[e]]++;
+			targets[pos] = vs[e];
+			weights[pos] = ws[e];
+		}
+		removeDuplicates(duplicates);
+	}
+
+	/*
+	 * Squeezes out repeated edges, which are now next to each other in their
+	 * rows (in the order they were given), merging each run into one edge.
+	 */
+	private void removeDuplicates(DuplicatePolicy duplicates) {
+		int write = 0;
+		int start = 0;
+		for(int u = 0; u < numVerts; ++u) {
+			int end = offsets[u+1];
+			offsets[u] = write;
+			for(int i = start; i < end; ++i) {
+				if(i > start && targets[i] == targets[i-1]) {
+					int last = write - 1;
+					switch(duplicates) {
+					case KEEP_FIRST:
+						break;
+					case KEEP_LAST:
+						weights[last] = weights[i];
+						break;
+					case KEEP_MIN:
+						weights[last] = Math.min(weights[last], weights[i]);
+						break;
+					case SUM:
+						weights[last] += weights[i];
+						break;
+					case REJECT:
+						throw new IllegalArgumentException("Duplicate edge " + u + " " + targets[i]);
+					}
+					continue;
+				}
+				targets[write] = targets[i];
+				weights[write] = weights[i];
+				write++;
+			}
+			start = end;
+		}
+		offsets[numVerts] = write;
+		for(int i = 0; i < write; ++i) {
+			if(weights[i] < 0)
+				numNegEdges++;
+		}
+		if(write < targets.length) {
+			int[] t = new int[write];
+			int[] w = new int[write];
+			System.arraycopy(targets, 0, t, 0, write);
+			System.arraycopy(weights, 0, w, 0, write);
+			targets = t;
+			weights = w;
+		}
+	}
+
+	/*
+	 * Finds the position of the edge u->v in the arrays, or -1 if there isn't one.
+	 */
+	private int find(int u, int v) {
+		int lo = offsets[u];
+		int hi = offsets[u+1] - 1;
+		while(lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if(targets[mid] < v)
+				lo = mid + 1;
+			else if(targets[mid] > v)
+				hi = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+
+	/*
+	 * CsrGraphs can't grow, since every row is packed against the next one.
+	 * (non-Javadoc)
+	 * @see Graph#addEdge(int, int, int, boolean)
+	 */
+	public void addEdge(int u, int v, int weight, boolean dir) {
+		throw new UnsupportedOperationException("CsrGraph is read-only; build it from a mutable graph instead");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#changeEdge(int, int, int, boolean)
+	 */
+	public void changeEdge(int u, int v, int weight, boolean dir) {
+		throw new UnsupportedOperationException("CsrGraph is read-only; build it from a mutable graph instead");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#edgeWeight(int, int)
+	 */
+	public int edgeWeight(int u, int v) {
+		int i = find(u,v);
+		if(i < 0)
+			return 0;
+		return weights[i];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#edgeExists(int, int)
+	 */
+	public boolean edgeExists(int u, int v) {
+		return find(u,v) >= 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#degree(int)
+	 */
+	public int degree(int u) {
+		return offsets[u+1] - offsets[u];
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#forEachNeighbor(int, IntIntConsumer)
+	 */
+	public void forEachNeighbor(int u, IntIntConsumer action) {
+		for(int i = offsets[u]; i < offsets[u+1]; ++i)
+			action.accept(targets[i], weights[i]);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#cursor()
+	 */
+	public NeighborCursor cursor() {
+		return new SliceCursor();
+	}
+	
+	/*
+	 * Walks one row's slice of the arrays.
+	 */
+	private class SliceCursor extends NeighborCursor {
+		private int next;
+		private int end;
+		public void reset(int u) {
+			next = offsets[u] - 1;
+			end = offsets[u+1];
+		}
+		public int nextTarget() {
+			if(++next >= end) {
+				next = end;
+				return -1;
+			}
+			return targets[next];
+		}
+		public int weight() {
+			return weights[next];
+		}
+	}
+	
+	/*
+	 * Builds an adjacency list; since the rows are sorted, each map iterates in
+	 * increasing order of target.
+	 * (non-Javadoc)
+	 * @see Graph#getAdjList()
+	 */
+	public Map<Integer,Integer>[] getAdjList() {
+		Map<Integer,Integer>[] ret = new Map[numVerts];
+		for(int u = 0; u < numVerts; ++u) {
+			ret[u] = new LinkedHashMap<Integer,Integer>();
+			for(int i = offsets[u]; i < offsets[u+1]; ++i)
+				ret[u].put(targets[i], weights[i]);
+		}
+		return ret;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#getAdjMatrix()
+	 */
+	public int[][] getAdjMatrix() {
+		int[][] ret = new int[numVerts][numVerts];
+		for(int u = 0; u < numVerts; ++u) {
+			for(int i = offsets[u]; i < offsets[u+1]; ++i)
+				ret[u][targets[i]] = weights[i];
+		}
+		return ret;
+	}
+
+	/*
+	 * The targets and weights are already edge arrays, so this only has to copy
+	 * them and spell out the sources.
+	 * (non-Javadoc)
+	 * @see Graph#edgeArrays()
+	 */
+	public EdgeArrays edgeArrays() {
+		int[] us = new int[targets.length];
+		for(int u = 0; u < numVerts; ++u)
+			Arrays.fill(us, offsets[u], offsets[u+1], u);
+		return new EdgeArrays(us, targets.clone(), weights.clone());
+	}
+
+	/*
+	 * A CsrGraph never changes, so it's already its own snapshot.
+	 * (non-Javadoc)
+	 * @see Graph#snapshot()
+	 */
+	public Graph snapshot() {
+		return this;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#numVertices()
+	 */
+	public int numVertices() {
+		return numVerts;
+	}
+
+	/*
+	 * Returns the number of directed edges stored; an undirected edge counts twice.
+	 */
+	public int numEdges() {
+		return targets.length;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#hasNegativeEdges()
+	 */
+	public boolean hasNegativeEdges() {
+		return numNegEdges > 0;
+	}
+}
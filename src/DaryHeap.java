@@ -0,0 +1,213 @@
+/*
+ * An implementation of the Heap interface where every node has d children instead
+ * of two.  A wider heap is shallower, so adding and updating keys (which move
+ * items up) take fewer steps, and the d children of a node sit next to each other
+ * in memory, so the extra comparisons on the way down are cheap.  Four children
+ * is usually the sweet spot for Dijkstra's algorithm, which updates keys far more
+ * often than it removes them.
+ *
+ * Each slot of the heap holds the key and its value packed into one long, value
+ * in the high half and key in the low half, so comparing two items is one
+ * comparison of longs (which breaks ties in favor of the smaller key) and never
+ * has to look anywhere else.  Keys must be in [0, num), as with FixedHeap, and
+ * the heap is sifted with loops rather than recursion.
+ */
+public class DaryHeap implements Heap {
+	private long[] heap; // (value << 32) | key, for each item, in heap order
+	private int[] positions; // where each key is in heap, or -1 if it isn't
+	private int size = 0;
+	private int arity;
+
+	/*
+	 * Makes a heap for the keys 0 through num-1, where every node has arity
+	 * children.
+	 */
+	public DaryHeap(int num, int arity) {
+		if(arity < 2)
+			throw new IllegalArgumentException("A heap needs at least two children per node");
+		this.arity = arity;
+		heap = new long[num];
+		positions = new int[num];
+		for(int i = 0; i < num; ++i)
+			positions[i] = -1;
+	}
+	public DaryHeap(int num) {
+		this(num, 4);
+	}
+
+	private static long pack(int key, int value) {
+		return ((long)value << 32) | key;
+	}
+	private static int keyOf(long item) {
+		return (int)item;
+	}
+	private static int valueOf(long item) {
+		return (int)(item >> 32);
+	}
+
+	/*
+	 * Moves the item at index up until its parent is no bigger, filling in the
+	 * gaps as it goes rather than swapping.
+	 */
+	private void siftUp(int index) {
+		long item = heap[index];
+		while(index > 0) {
+			int parent = (index - 1) / arity;
+			long p = heap[parent];
+			if(p <= item)
+				break;
+			heap[index] = p;
+			positions[keyOf(p)] = index;
+			index = parent;
+		}
+		heap[index] = item;
+		positions[keyOf(item)] = index;
+	}
+
+	/*
+	 * Moves the item at index down until none of its children are smaller.
+	 */
+	private void siftDown(int index) {
+		long item = heap[index];
+		while(true) {
+			int first = index * arity + 1;
+			if(first >= size)
+				break;
+			int last = Math.min(first + arity, size);
+			int best = first;
+			long bestItem = heap[first];
+			for(int c = first + 1; c < last; ++c) {
+				if(heap[c] < bestItem) {
+					best = c;
+					bestItem = heap[c];
+				}
+			}
+			if(bestItem >= item)
+				break;
+			heap[index] = bestItem;
+			positions[keyOf(bestItem)] = index;
+			index = best;
+		}
+		heap[index] = item;
+		positions[keyOf(item)] = index;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Heap#dequeue()
+	 */
+	public int dequeue() {
+		if(size == 0)
+			return -1;
+		int top = keyOf(heap[0]);
+		positions[top] = -1;
+		size--;
+		if(size > 0) {
+			heap[0] = heap[size];
+			siftDown(0);
+		}
+		return top;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Heap#add(int, int)
+	 */
+	public void add(int key, int value) {
+		if(positions[key] >= 0)
+			throw new IllegalArgumentException("Key " + key + " is already in the heap");
+		heap[size] = pack(key, value);
+		siftUp(size++);
+	}
+
+	/*
+	 * The new value can be bigger or smaller than the old one.
+	 * (non-Javadoc)
+	 * @see Heap#updateKey(int, int)
+	 */
+	public void updateKey(int key, int newValue) {
+		int index = positions[key];
+		if(index < 0)
+			throw new IllegalArgumentException("Key " + key + " is not in the heap");
+		long old = heap[index];
+		heap[index] = pack(key, newValue);
+		if(heap[index] < old)
+			siftUp(index);
+		else
+			siftDown(index);
+	}
+
+	/*
+	 * Empties the heap in time proportional to the number of items left in it,
+	 * so one heap can be reused for many searches.
+	 */
+	public void clear() {
+		for(int i = 0; i < size; ++i)
+			positions[keyOf(heap[i])] = -1;
+		size = 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Heap#isEmpty()
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/*
+	 * Returns the number of items in the heap.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Heap#hasKey(int)
+	 */
+	public boolean hasKey(int key) {
+		return positions[key] >= 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Heap#peekTopValue()
+	 */
+	public int peekTopValue() {
+		if(size == 0)
+			throw new IllegalStateException("The heap is empty");
+		return valueOf(heap[0]);
+	}
+
+	/*
+	 * Returns -1 if the heap is empty.
+	 * (non-Javadoc)
+	 * @see Heap#peekTop()
+	 */
+	public int peekTop() {
+		return size == 0 ? -1 : keyOf(heap[0]);
+	}
+
+	/*
+	 * Returns Integer.MAX_VALUE/4 for keys that aren't in the heap, like FixedHeap.
+	 * (non-Javadoc)
+	 * @see Heap#getValue(int)
+	 */
+	public int getValue(int key) {
+		int index = positions[key];
+		if(index < 0)
+			return Integer.MAX_VALUE/4;
+		return valueOf(heap[index]);
+	}
+
+	/*
+	 * String representation of the heap; just prints out the keys in heap order.
+	 */
+	public String toString() {
+		StringBuilder ret = new StringBuilder();
+		for(int i = 0; i < size; ++i)
+			ret.append(keyOf(heap[i])).append(' ');
+		return ret.toString();
+	}
+}
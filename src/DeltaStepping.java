@@ -0,0 +1,307 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Parallel single-source shortest paths by delta-stepping (Meyer and Sanders).
+ * Vertices wait in buckets of width delta by tentative distance, and the buckets
+ * are emptied in order.  Emptying one relaxes the light edges (weight <= delta) of
+ * everything in it, all at once on a ForkJoinPool, and repeats for whatever that
+ * drops back into the same bucket.  Then the heavy edges of everything that passed
+ * through the bucket are relaxed, once each, since they can only reach later
+ * buckets.  A small delta does little wasted work but has little to run in
+ * parallel at once; a large one is the other way round.
+ *
+ * Each vertex's distance and predecessor are packed into one long, distance in the
+ * high half, and only ever lowered by compare-and-set, so when several threads
+ * relax edges into the same vertex the smallest (distance, predecessor) pair wins.
+ * That makes the result deterministic: each vertex's predecessor is the smallest
+ * numbered vertex it can be reached from on a shortest path, the same as
+ * dijkstra picks.  (Edges of weight 0 are the exception; see relax.)  The buckets
+ * themselves are only touched between parallel steps, by one thread.
+ *
+ * Use it through GraphAlgs.deltaStepping.
+ */
+public class DeltaStepping {
+	private static final int GRAIN = 256; // vertices per task when relaxing in parallel
+	private static final int MAX_RING = 1 << 16; // the most buckets kept at once
+	private static final int INF = Integer.MAX_VALUE/2;
+	private final Graph g;
+	private final int delta;
+	private final ForkJoinPool pool;
+	private final AtomicLongArray labels; // (dist << 32) | pred, for each vertex
+	private final IntList[] buckets; // used in a circle; bucket b is buckets[b % length]
+	private final int[] bucketOf; // the bucket each vertex was last put in, or -1
+	private int queued; // how many vertices are waiting in a bucket
+	private final int[] heavyDone; // the last bucket each vertex relaxed its heavy edges in
+
+	/*
+	 * g: The graph, which must not have negative edges or change during the search.
+	 * delta: The width of a bucket.
+	 * pool: The pool to relax edges on.
+	 */
+	public DeltaStepping(Graph g, int delta, ForkJoinPool pool) {
+		if(g.hasNegativeEdges())
+			throw new IllegalArgumentException("Delta-stepping doesn't work with negative edge weights!");
+		if(delta < 1)
+			throw new IllegalArgumentException("Delta must be positive");
+		this.g = g;
+		this.delta = delta;
+		this.pool = pool;
+		int n = g.numVertices();
+		labels = new AtomicLongArray(n);
+		// Every tentative distance is within the largest edge weight of the bucket
+		// being emptied, so this many buckets always hold everything.  A small delta
+		// with big weights could want millions, though, so the ring is capped, and
+		// then a slot can hold vertices for the same bucket on a later lap round.
+		// Buckets are only made when something is first put in them.
+		buckets = new IntList[(int)Math.min(Math.max(g.maxEdgeWeight(), 0) / delta + 2L, MAX_RING)];
+		bucketOf = new int[n];
+		heavyDone = new int[n];
+	}
+
+	/*
+	 * Picks a delta of the largest edge weight over the average degree, the usual
+	 * rule of thumb for random sparse graphs.
+	 */
+	public static int defaultDelta(Graph g) {
+		int n = g.numVertices();
+		long m = 0;
+		for(int u = 0; u < n; ++u)
+			m += g.degree(u);
+		long avgDegree = Math.max(1, m / Math.max(n, 1));
+		return (int)Math.max(1, g.maxEdgeWeight() / avgDegree);
+	}
+
+	private static long pack(int dist, int pred) {
+		return ((long)dist << 32) | (pred & 0xffffffffL);
+	}
+	private static int distOf(long label) {
+		return (int)(label >>> 32);
+	}
+	private static int predOf(long label) {
+		return (int)label;
+	}
+
+	/*
+	 * Offers v the distance d through u, over an edge of weight w.  Returns whether
+	 * its distance went down; a tie that only gives it a smaller predecessor counts
+	 * as no change, since nothing has to be relaxed again for it.  Ties over edges
+	 * of weight 0 are ignored, or two vertices at the same distance could end up
+	 * as each other's predecessors.
+	 */
+	private boolean relax(int v, int d, int u, int w) {
+		long offer = pack(d, u);
+		while(true) {
+			long old = labels.get(v);
+			if(offer >= old || (w == 0 && d == distOf(old)))
+				return false;
+			if(labels.compareAndSet(v, old, offer))
+				return d < distOf(old);
+		}
+	}
+
+	/*
+	 * Runs the search from source.  Afterwards the results are in dists and preds.
+	 */
+	public void run(int source) {
+		int n = g.numVertices();
+		for(int v = 0; v < n; ++v)
+			labels.set(v, pack(INF, -1));
+		Arrays.fill(bucketOf, -1);
+		Arrays.fill(heavyDone, -1);
+		for(IntList bucket : buckets) {
+			if(bucket != null)
+				bucket.size = 0;
+		}
+		queued = 0;
+		labels.set(source, pack(0, source));
+		place(source);
+		IntList passed = new IntList(); // everything taken out of the current bucket
+		int b = 0;
+		int idle = 0; // buckets looked at in a row that had nothing in them
+		while(queued > 0) {
+			if(idle == buckets.length) {
+				// a whole lap of the ring was empty, so skip to the next bucket in use
+				b = nextBucket();
+				idle = 0;
+			}
+			int[] frontier = take(b);
+			if(frontier.length == 0) {
+				b++;
+				idle++;
+				continue;
+			}
+			idle = 0;
+			passed.size = 0;
+			// light edges, until nothing more falls back into this bucket
+			do {
+				passed.addAll(frontier, frontier.length);
+				placeAll(pool.invoke(new Relax(frontier, 0, frontier.length, true)));
+				frontier = take(b);
+			} while(frontier.length > 0);
+			// then heavy edges, once for each vertex that was in it
+			int[] settled = new int[passed.size];
+			int count = 0;
+			for(int i = 0; i < passed.size; ++i) {
+				int v = passed.items[i];
+				if(heavyDone[v] != b) {
+					heavyDone[v] = b;
+					settled[count++] = v;
+				}
+			}
+			placeAll(pool.invoke(new Relax(settled, 0, count, false)));
+			b++;
+		}
+	}
+
+	/*
+	 * Takes the vertices that really belong in bucket b out of its slot of the
+	 * ring.  Of the rest, those waiting for a later lap round stay, and the others
+	 * have moved to a closer bucket since they were put here, so they're dropped.
+	 */
+	private int[] take(int b) {
+		int slot = b % buckets.length;
+		IntList bucket = buckets[slot];
+		if(bucket == null || bucket.size == 0)
+			return new int[0];
+		int[] frontier = new int[bucket.size];
+		int count = 0;
+		int kept = 0;
+		for(int i = 0; i < bucket.size; ++i) {
+			int v = bucket.items[i];
+			if(bucketOf[v] == b) {
+				bucketOf[v] = -1;
+				queued--;
+				frontier[count++] = v;
+			}
+			else if(bucketOf[v] > b && bucketOf[v] % buckets.length == slot)
+				bucket.items[kept++] = v;
+		}
+		bucket.size = kept;
+		return Arrays.copyOf(frontier, count);
+	}
+
+	/*
+	 * The lowest bucket anything is waiting in, for when the ring is capped and
+	 * there's a gap of more than a lap before it.
+	 */
+	private int nextBucket() {
+		int best = Integer.MAX_VALUE;
+		for(IntList bucket : buckets) {
+			if(bucket == null)
+				continue;
+			for(int i = 0; i < bucket.size; ++i) {
+				int b = bucketOf[bucket.items[i]];
+				if(b >= 0 && b < best)
+					best = b;
+			}
+		}
+		return best;
+	}
+
+	// Puts v in the bucket for its distance, unless it's already there
+	private void place(int v) {
+		int b = distOf(labels.get(v)) / delta;
+		if(bucketOf[v] != b) {
+			if(bucketOf[v] < 0)
+				queued++;
+			bucketOf[v] = b;
+			int slot = b % buckets.length;
+			if(buckets[slot] == null)
+				buckets[slot] = new IntList();
+			buckets[slot].add(v);
+		}
+	}
+	private void placeAll(IntList vs) {
+		for(int i = 0; i < vs.size; ++i)
+			place(vs.items[i]);
+	}
+
+	/*
+	 * Relaxes the light or heavy edges out of vertices[from, to), splitting the
+	 * range in half until it's small.  Returns the vertices whose distances went
+	 * down, possibly more than once each.
+	 */
+	private class Relax extends RecursiveTask<IntList> {
+		private static final long serialVersionUID = 1L;
+		private int[] vertices;
+		private int from;
+		private int to;
+		private boolean light;
+		Relax(int[] vertices, int from, int to, boolean light) {
+			this.vertices = vertices;
+			this.from = from;
+			this.to = to;
+			this.light = light;
+		}
+		protected IntList compute() {
+			if(to - from > GRAIN) {
+				int mid = (from + to) >>> 1;
+				Relax left = new Relax(vertices, from, mid, light);
+				left.fork();
+				IntList right = new Relax(vertices, mid, to, light).compute();
+				IntList ret = left.join();
+				ret.addAll(right.items, right.size);
+				return ret;
+			}
+			IntList improved = new IntList();
+			NeighborCursor edges = g.cursor();
+			for(int i = from; i < to; ++i) {
+				int u = vertices[i];
+				int du = distOf(labels.get(u));
+				edges.reset(u);
+				for(int v = edges.nextTarget(); v >= 0; v = edges.nextTarget()) {
+					int w = edges.weight();
+					if((w <= delta) != light)
+						continue;
+					if(relax(v, du + w, u, w))
+						improved.add(v);
+				}
+			}
+			return improved;
+		}
+	}
+
+	/*
+	 * The distances found, with Integer.MAX_VALUE/2 for vertices that can't be
+	 * reached, as in dijkstra.
+	 */
+	public int[] dists() {
+		int[] ret = new int[labels.length()];
+		for(int v = 0; v < ret.length; ++v)
+			ret[v] = distOf(labels.get(v));
+		return ret;
+	}
+
+	/*
+	 * The predecessor of each vertex on its shortest path, the source for the
+	 * source, and -1 for vertices that can't be reached.
+	 */
+	public int[] preds() {
+		int[] ret = new int[labels.length()];
+		for(int v = 0; v < ret.length; ++v)
+			ret[v] = predOf(labels.get(v));
+		return ret;
+	}
+
+	/*
+	 * A growable list of ints.
+	 */
+	private static class IntList {
+		int[] items = new int[16];
+		int size = 0;
+		void add(int x) {
+			if(size == items.length)
+				items = Arrays.copyOf(items, size * 2);
+			items[size++] = x;
+		}
+		void addAll(int[] xs, int count) {
+			if(size + count > items.length)
+				items = Arrays.copyOf(items, Math.max(size + count, items.length * 2));
+			System.arraycopy(xs, 0, items, size, count);
+			size += count;
+		}
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * A union-find structure over the elements 0 to n-1, which starts with each in a
+ * set of its own.  Sets are trees stored as an array of parents, joined by rank
+ * (the shorter tree goes under the taller) and flattened by path compression on
+ * every find, which together make any sequence of operations take nearly
+ * constant time each.  It's two flat arrays, five bytes per element, with no
+ * objects.
+ *
+ * Not safe for use by several threads at once, since find writes as it reads.
+ */
+public class DisjointSet {
+	private int[] parent; // parent[x] == x for the root of each set
+	private byte[] rank; // an upper bound on the height of each root's tree
+	private int numSets;
+
+	public DisjointSet(int n) {
+		if(n < 0)
+			throw new IllegalArgumentException("Negative number of elements");
+		parent = new int[n];
+		rank = new byte[n];
+		for(int i = 0; i < n; ++i)
+			parent[i] = i;
+		numSets = n;
+	}
+
+	/*
+	 * Returns the root of x's set, pointing everything on the way there straight
+	 * at it.
+	 */
+	public int find(int x) {
+		int root = x;
+		while(parent[root] != root)
+			root = parent[root];
+		while(parent[x] != root) {
+			int next = parent[x];
+			parent[x] = root;
+			x = next;
+		}
+		return root;
+	}
+
+	/*
+	 * Joins the sets a and b are in, returning false if they were already the
+	 * same set.
+	 */
+	public boolean union(int a, int b) {
+		int ra = find(a);
+		int rb = find(b);
+		if(ra == rb)
+			return false;
+		if(rank[ra] < rank[rb]) {
+			int t = ra;
+			ra = rb;
+			rb = t;
+		}
+		parent[rb] = ra;
+		if(rank[ra] == rank[rb])
+			rank[ra]++;
+		numSets--;
+		return true;
+	}
+
+	public boolean connected(int a, int b) {
+		return find(a) == find(b);
+	}
+
+	public int size() {
+		return parent.length;
+	}
+
+	public int numSets() {
+		return numSets;
+	}
+}
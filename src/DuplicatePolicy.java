@@ -0,0 +1,12 @@
+/*
+ * What to do when the same directed edge shows up more than once while building
+ * a graph in bulk (see CsrGraph and GraphLoader).  Calling addEdge repeatedly
+ * behaves like KEEP_FIRST.
+ */
+public enum DuplicatePolicy {
+	KEEP_FIRST, // use the weight of the first copy
+	KEEP_LAST, // use the weight of the last copy
+	KEEP_MIN, // use the smallest weight of all the copies
+	SUM, // add up the weights of all the copies
+	REJECT // throw an IllegalArgumentException
+}
@@ -0,0 +1,61 @@
+import java.util.Arrays;
+
+/*
+ * A list of directed edges stored as three parallel arrays, so edge i runs from
+ * u[i] to v[i] and weighs weight[i].  This is what the algorithms that look at
+ * every edge in turn (Kruskal, Boruvka) work from: scanning it is a walk
+ * over three flat arrays, and it costs 12 bytes per edge where getEdgeList costs
+ * an Edge object and a pointer.  Get one from Graph.edgeArrays().
+ */
+public class EdgeArrays {
+	public int[] u;
+	public int[] v;
+	public int[] weight;
+
+	/*
+	 * Wraps the given arrays, which must all be the same length.  They're used
+	 * as they are, not copied.
+	 */
+	public EdgeArrays(int[] u, int[] v, int[] weight) {
+		if(u.length != v.length || u.length != weight.length)
+			throw new IllegalArgumentException("Edge arrays must all be the same length");
+		this.u = u;
+		this.v = v;
+		this.weight = weight;
+	}
+
+	/*
+	 * Returns the number of edges.
+	 */
+	public int size() {
+		return u.length;
+	}
+
+	/*
+	 * Sorts the edges into increasing order of weight, keeping edges of equal
+	 * weight in the order they were in.  Each edge's weight and index are packed
+	 * into one long, weight in the high half, so sorting those longs sorts by
+	 * weight and breaks ties by position; that sort is Arrays.parallelSort, which
+	 * uses every core on big lists, and the three arrays are permuted to match
+	 * afterwards.
+	 */
+	public void sortByWeight() {
+		int m = size();
+		long[] keys = new long[m];
+		for(int i = 0; i < m; ++i)
+			keys[i] = ((long)weight[i] << 32) | i;
+		Arrays.parallelSort(keys);
+		int[] su = new int[m];
+		int[] sv = new int[m];
+		int[] sw = new int[m];
+		for(int i = 0; i < m; ++i) {
+			int e = (int)keys[i];
+			su[i] = u[e];
+			sv[i] = v[e];
+			sw[i] = weight[e];
+		}
+		u = su;
+		v = sv;
+		weight = sw;
+	}
+}
@@ -1,5 +1,6 @@
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
 /* 
@@ -91,6 +92,7 @@ public class ExpandableGraph extends Graph {
 			adjList.get(u).put(v, weight);
 		else
 			return;
+		modified();
 		
 		if(weight < 0)
 			numNegEdges++;
@@ -118,6 +120,53 @@ public class ExpandableGraph extends Graph {
 			return 0;
 	}
 	
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#degree(int)
+	 */
+	public int degree(int u) {
+		return adjList.get(u).size();
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#forEachNeighbor(int, IntIntConsumer)
+	 */
+	public void forEachNeighbor(int u, IntIntConsumer action) {
+		for(Map.Entry<Integer,Integer> e : adjList.get(u).entrySet())
+			action.accept(e.getKey(), e.getValue());
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#cursor()
+	 */
+	public NeighborCursor cursor() {
+		return new MapCursor();
+	}
+	
+	/*
+	 * Walks the live map for a vertex, so it only allocates the map's iterator
+	 * on each reset.
+	 */
+	private class MapCursor extends NeighborCursor {
+		private Iterator<Map.Entry<Integer,Integer>> it;
+		private int weight;
+		public void reset(int u) {
+			it = adjList.get(u).entrySet().iterator();
+		}
+		public int nextTarget() {
+			if(!it.hasNext())
+				return -1;
+			Map.Entry<Integer,Integer> e = it.next();
+			weight = e.getValue();
+			return e.getKey();
+		}
+		public int weight() {
+			return weight;
+		}
+	}
+	
 	/*
 	 * (non-Javadoc)
 	 * @see Graph#changeEdge(int, int, int, boolean)
@@ -128,6 +177,7 @@ public class ExpandableGraph extends Graph {
 		else if(weight >= 0 && edgeWeight(u,v) < 0)
 			numNegEdges--;
 		adjList.get(u).put(v, weight);
+		modified();
 		if(!dir)
 			changeEdge(v,u,weight,true);
 	}
@@ -1,35 +1,35 @@
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 
 /*
- * An alternative implementation of the Heap that doesn't need to know anything about the data.  
- * It was created first, and then replaced by the fixed-size Heap, which is more memory-efficient.  
- * However, it is fully-functional, and works for a much more general Heap implementation, 
- * since the other version requires that the keys be integers from 1 to n for an input n.  
- * This version also runs in O(log n) for enqueueing, dequeueing and updating keys.  Since most 
+ * An alternative implementation of the Heap that doesn't need to know anything about the data.
+ * It was created first, and then replaced by the fixed-size Heap, which is more memory-efficient.
+ * However, it is fully-functional, and works for a much more general Heap implementation,
+ * since the other version requires that the keys be integers from 1 to n for an input n.
+ * This version also runs in O(log n) for enqueueing, dequeueing and updating keys.  Since most
  * of the algorithms are the same, the other version is more thoroughly commented.
+ *
+ * Any int but Integer.MIN_VALUE can be a key.  The heap itself is a pair of
+ * parallel int arrays (keys and their values, in heap order) that double when they
+ * fill up, and the position of each key is kept in an IntIntMap, so nothing is
+ * boxed, and once the heap has grown to its working size it stops allocating.
  */
 
 public class ExpandableHeap implements Heap {
-	private ArrayList<Integer> items; // the actual heap, which orders vertices
-	private HashMap<Integer,Integer> locations; // maps vertices to their location in the heap
-	private int end;
-	// maps vertices to their hashed values; in this case, the distances they are from
-	// the original source vertex.
-	private HashMap<Integer,Integer> distances; 
+	private int[] items; // the actual heap, which orders vertices
+	private int[] distances; // the value of the item in the same slot of items
+	private IntIntMap locations; // maps vertices to their location in the heap
+	private int size = 0;
 
 	/*
 	 * This is for cases where we know how big we expect the heap to be.
 	 */
 	public ExpandableHeap(int num) {
-		items = new ArrayList<Integer>(num);
-		for(int i = 0; i < num; ++i)
-			items.add(-4);
-		locations = new HashMap<Integer,Integer>(num);
-		distances = new HashMap<Integer,Integer>(num);
-		end = 1;
-	}
-	
+		num = Math.max(num, 1);
+		items = new int[num];
+		distances = new int[num];
+		locations = new IntIntMap(num);
+	}
+
 	public ExpandableHeap() {
 		this(10); // This is what the data structures use anyway
 	}
@@ -39,73 +39,65 @@ public class ExpandableHeap implements Heap {
 	 * @see Heap#dequeue()
 	 */
 	public int dequeue() {
-		if(end > 2) {
-			int top = items.get(1);
-			items.set(1, items.get(end-1));
-			items.set(end-1, -4);
-			end--;
-			locations.remove(top);
-			distances.remove(top);
-			heapify(1);
-			return top;
-		}
-		// A special case for when there's only one item in the heap.  These could
-		// probably be merged better, but this works, and doesn't exact much of a cost.
-		else if(end == 2) {
-			int top = items.get(1);
-			items.set(1, -4);
-			locations.remove(top);
-			distances.remove(top);
-			end = 1;
-			return top;
+		if(size == 0)
+			return -1;
+		int top = items[0];
+		locations.remove(top, -1);
+		size--;
+		if(size > 0) {
+			items[0] = items[size];
+			distances[0] = distances[size];
+			siftDown(0);
 		}
-		return -1;
+		return top;
 	}
 
 	/*
-	 * Restores the heap invariant, given the index of the value that's out
-	 * of place (which occurs after enqueueing or dequeueing).  For more details,
-	 * see the comments in FixedHeap.
+	 * Moves the item at index up the heap until its parent is no bigger, sliding
+	 * the parents down into the gap instead of swapping.
 	 */
-	private void heapify(int index) {  
-		int leftChild = Integer.MAX_VALUE;
-		int rightChild = Integer.MAX_VALUE;
-		int curr = 0;
-		int parent;
-		if(index < end)
-			curr = distances.get(items.get(index));
-		else
-			return;
-		if(index > 1)
-			parent = distances.get(items.get(index/2));
-		else
-			parent = -1;
-		if(2*index < end)
-			leftChild = distances.get(items.get(2*index));
-		if((2*index+1) < end)
-			try {
-				rightChild = distances.get(items.get(2*index+1));
-			}catch(Exception e) {}
-		if(parent > curr) { // if this item needs to be promoted
-			swap(index, index/2);
-			heapify(index/2);
-		}
-		// if this item needs to be pushed down the heap
-		else if(curr > leftChild || curr > rightChild) {
-			// swap with the smaller child
-			if(rightChild < leftChild) {
-				swap(index, 2*index+1);
-				heapify(2*index+1);
-			}
-			else if(leftChild < Integer.MAX_VALUE/2) {
-				swap(index, 2*index);
-				heapify(2*index);
-			}
+	private void siftUp(int index) {
+		int item = items[index];
+		int value = distances[index];
+		while(index > 0) {
+			int parent = (index - 1) / 2;
+			if(distances[parent] <= value)
+				break;
+			move(parent, index);
+			index = parent;
 		}
-		else { // it's in the right place
-			//locations.put(items[index], index);
-			// don't need to do this; that happens in the various swaps
+		items[index] = item;
+		distances[index] = value;
+		locations.put(item, index, -1);
+	}
+
+	/*
+	 * Moves the item at index down the heap until neither child is smaller.
+	 */
+	private void siftDown(int index) {
+		int item = items[index];
+		int value = distances[index];
+		while(true) {
+			int child = 2*index + 1;
+			if(child >= size)
+				break;
+			if(child + 1 < size && distances[child+1] < distances[child])
+				child++;
+			if(distances[child] >= value)
+				break;
+			move(child, index);
+			index = child;
 		}
+		items[index] = item;
+		distances[index] = value;
+		locations.put(item, index, -1);
+	}
+
+	// Copies the item in slot from into slot to, keeping locations up to date
+	private void move(int from, int to) {
+		items[to] = items[from];
+		distances[to] = distances[from];
+		locations.put(items[to], to, -1);
 	}
 
 	/*
@@ -113,11 +105,15 @@ public class ExpandableHeap implements Heap {
 	 * @see Heap#add(int, int)
 	 */
 	public void add(int newItem, int value) {
-		items.set(end, newItem);
-		locations.put(newItem,end);
-		distances.put(newItem,value);
-		end++;
-		heapify(end-1);
+		if(locations.containsKey(newItem))
+			throw new IllegalArgumentException("Key " + newItem + " is already in the heap");
+		if(size == items.length) {
+			items = Arrays.copyOf(items, size * 2);
+			distances = Arrays.copyOf(distances, size * 2);
+		}
+		items[size] = newItem;
+		distances[size] = value;
+		siftUp(size++);
 	}
 
 	/*
@@ -125,24 +121,23 @@ public class ExpandableHeap implements Heap {
 	 * @see Heap#updateKey(int, int)
 	 */
 	public void updateKey(int key, int newVal) {
-		distances.put(key, newVal);
-		int index = locations.get(key);
-		heapify(index);
+		int index = locations.get(key, -1);
+		if(index < 0)
+			throw new IllegalArgumentException("Key " + key + " is not in the heap");
+		int old = distances[index];
+		distances[index] = newVal;
+		if(newVal < old)
+			siftUp(index);
+		else
+			siftDown(index);
 	}
 
-	/* Swap the two values in the heap; involves swapping all their 
-	 * hash data, too.  This is used for restoring the heap invariant
-	 * after adding or removing an item from heap.  It's private because
-	 * not only does it swap based on indices in the heap's implementation,
-	 * but allowing the end user to use it could break the heap invariant.
+	/*
+	 * Empties the heap, keeping the space it has grown to.
 	 */
-	private void swap(int firstIndex, int secondIndex) {
-		int firstVert = items.get(firstIndex);
-		int secondVert = items.get(secondIndex);
-		locations.put(firstVert, secondIndex);
-		locations.put(secondVert, firstIndex);
-		items.set(firstIndex, secondVert);
-		items.set(secondIndex, firstVert);
+	public void clear() {
+		locations.clear();
+		size = 0;
 	}
 
 	/*
@@ -150,17 +145,25 @@ public class ExpandableHeap implements Heap {
 	 * @see Heap#isEmpty()
 	 */
 	public boolean isEmpty() {
-		return end < 2;
+		return size == 0;
 	}
 
 	/*
-	 * 
+	 * Returns the number of items in the heap.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/*
+	 * String representation of the heap; just prints out the array.
+	 */
 	public String toString() {
-		String ret = "";
-		for(int i = 1; i < end+1; ++i)
-			ret += items.get(i) + " ";
-		return ret;
-	}*/
+		StringBuilder ret = new StringBuilder();
+		for(int i = 0; i < size; ++i)
+			ret.append(items[i]).append(' ');
+		return ret.toString();
+	}
 
 	/*
 	 * Returns whether or not the heap has the given key.
@@ -174,22 +177,29 @@ public class ExpandableHeap implements Heap {
 	 * @see Heap#peekTopValue()
 	 */
 	public int peekTopValue() {
-		return distances.get(items.get(1));
+		if(size == 0)
+			throw new IllegalStateException("The heap is empty");
+		return distances[0];
 	}
-	
+
 	/*
+	 * Returns -1 if the heap is empty.
 	 * (non-Javadoc)
 	 * @see Heap#peekTop()
 	 */
 	public int peekTop() {
-		return items.get(1);
+		return size == 0 ? -1 : items[0];
 	}
 
 	/*
+	 * Returns Integer.MAX_VALUE/4 for keys that aren't in the heap, like FixedHeap.
 	 * (non-Javadoc)
 	 * @see Heap#getValue(int)
 	 */
-	public int getValue(int index) {
-		return distances.get(index);
+	public int getValue(int key) {
+		int index = locations.get(key, -1);
+		if(index < 0)
+			return Integer.MAX_VALUE/4;
+		return distances[index];
 	}
 }
@@ -1,47 +1,146 @@
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+/*
+ * A version of the Graph class backed by an adjacency matrix, for when the number
+ * of vertices is known up front.  The matrix is one flat, row-major array rather
+ * than an array of rows, so there's only one object and scanning a row is a walk
+ * over consecutive memory.  Once the matrix has more than 2^PAGE_BITS entries it's
+ * split over several arrays, since that's as big as a Java array can get, but
+ * all the indexing is done with longs so the split doesn't show.
+ * 
+ * Undirected graphs can use TRIANGULAR storage, which only keeps the upper
+ * triangle of the matrix (u <= v) and so needs half the memory.  In that mode
+ * every edge goes both ways, so adding or changing a directed edge is an error.
+ */
 public class FixedGraph extends Graph {
-	private int[][] adjMatrix;
+	public enum Storage {
+		FULL, // a cell for every ordered pair of vertices
+		TRIANGULAR // a cell for every unordered pair; undirected edges only
+	}
+	
+	private static final int PAGE_BITS = 30;
+	private static final long PAGE_MASK = (1L << PAGE_BITS) - 1;
+	private int[][] pages; // the flat matrix, split into pages of 2^PAGE_BITS
+	private Storage storage;
 	private int numVerts;
 	private int numNegEdges = 0;
+	private int[] degrees; // the number of non-zero entries in each row
 	public FixedGraph(int n) {
-		adjMatrix = new int[n][n];
+		this(n, Storage.FULL);
+	}
+	public FixedGraph(int n, Storage storage) {
 		numVerts = n;
+		this.storage = storage;
+		degrees = new int[n];
+		long cells;
+		if(storage == Storage.FULL)
+			cells = (long)n * n;
+		else
+			cells = (long)n * (n + 1) / 2;
+		int numPages = (int)((cells + PAGE_MASK) >>> PAGE_BITS);
+		pages = new int[Math.max(numPages, 1)][];
+		for(int i = 0; i < pages.length; ++i)
+			pages[i] = new int[(int)Math.min(cells - ((long)i << PAGE_BITS), 1L << PAGE_BITS)];
 	}
 	/*
 	 * Makes a copy of the input graph element by element.
 	 */
 	public FixedGraph(Graph g) {
-		numVerts = g.numVertices();
-		int[][] mat = g.getAdjMatrix();
-		adjMatrix = new int[numVerts][numVerts];
-		for(int i = 0; i < numVerts; ++i) {
-			for(int j = 0; j < numVerts; ++j) {
-				adjMatrix[i][j] = mat[i][j];
-				if(mat[i][j] < 0) {
-					numNegEdges++;
+		this(g, Storage.FULL);
+	}
+	
+	/*
+	 * The same as above, but with a choice of storage.  Copying into TRIANGULAR
+	 * storage throws an IllegalArgumentException if g isn't symmetric.
+	 */
+	public FixedGraph(Graph g, Storage storage) {
+		this(g.numVertices(), storage);
+		NeighborCursor c = g.cursor();
+		for(int u = 0; u < numVerts; ++u) {
+			c.reset(u);
+			for(int v = c.nextTarget(); v >= 0; v = c.nextTarget()) {
+				int weight = c.weight();
+				if(weight == 0)
+					continue;
+				if(storage == Storage.TRIANGULAR) {
+					if(g.edgeWeight(v,u) != weight)
+						throw new IllegalArgumentException("Can't store a directed graph in a triangular matrix: edge " + u + " " + v);
+					degrees[u]++;
+					if(u > v)
+						continue; // we already stored it from the other end
 				}
+				else
+					degrees[u]++;
+				set(index(u,v), weight);
+				if(weight < 0)
+					numNegEdges++;
 			}
 		}
 	}
 	
+	/*
+	 * Gives the position of the cell for u->v in the flat matrix.
+	 */
+	private long index(int u, int v) {
+		if(storage == Storage.FULL)
+			return (long)u * numVerts + v;
+		if(u > v) {
+			int t = u;
+			u = v;
+			v = t;
+		}
+		// rows 0 through u-1 of the triangle hold n, n-1, ..., n-u+1 cells
+		return (long)u * numVerts - (long)u * (u - 1) / 2 + (v - u);
+	}
+	private int get(long i) {
+		return pages[(int)(i >>> PAGE_BITS)][(int)(i & PAGE_MASK)];
+	}
+	private void set(long i, int weight) {
+		pages[(int)(i >>> PAGE_BITS)][(int)(i & PAGE_MASK)] = weight;
+	}
+	
+	/*
+	 * Returns how this graph's matrix is stored.
+	 */
+	public Storage storage() {
+		return storage;
+	}
+	
+	/*
+	 * Throws if asked to make a change that would break the symmetry of a
+	 * triangular matrix.
+	 */
+	private void checkDirected(int u, int v, boolean dir) {
+		if(dir && u != v && storage == Storage.TRIANGULAR)
+			throw new IllegalArgumentException("A triangular FixedGraph can only hold undirected edges");
+	}
+	
 	/*
 	 * (non-Javadoc)
 	 * @see Graph#addEdge(int, int, int, boolean)
 	 */
 	public void addEdge(int u, int v, int weight, boolean dir) {
-		if(adjMatrix[u][v] != 0 || weight == 0)
+		checkDirected(u,v,dir);
+		long i = index(u,v);
+		if(get(i) != 0 || weight == 0)
 			return;
 		if(weight < 0)
 			numNegEdges++;
-		adjMatrix[u][v] = weight;
-		if(!dir) {
+		set(i, weight);
+		degrees[u]++;
+		modified();
+		if(storage == Storage.TRIANGULAR) {
+			if(u != v)
+				degrees[v]++; // the same cell is also v->u
+		}
+		else if(!dir) {
 			addEdge(v,u,weight,true);
 		}
 	}
 
 	/*
+	 * This makes a full copy every time; use matrixView() if you only need to read it.
 	 * (non-Javadoc)
 	 * @see Graph#getAdjMatrix()
 	 */
@@ -49,7 +148,7 @@ public class FixedGraph extends Graph {
 		int[][] ret = new int[numVerts][numVerts];
 		for(int i = 0; i < numVerts; ++i) {
 			for(int j = 0; j < numVerts; ++j)
-				ret[i][j] = adjMatrix[i][j];
+				ret[i][j] = get(index(i,j));
 		}
 		return ret;
 	}
@@ -59,7 +158,7 @@ public class FixedGraph extends Graph {
 	 * @see Graph#edgeWeight(int, int)
 	 */
 	public int edgeWeight(int u, int v) {
-		return adjMatrix[u][v];
+		return get(index(u,v));
 	}
 	
 	/*
@@ -67,7 +166,7 @@ public class FixedGraph extends Graph {
 	 * @see Graph#edgeExists(int, int)
 	 */
 	public boolean edgeExists(int u, int v) {
-		return adjMatrix[u][v] != 0;
+		return get(index(u,v)) != 0;
 	}
 	
 	/*
@@ -80,25 +179,103 @@ public class FixedGraph extends Graph {
 		for(int i = 0; i < numVerts; ++i) {
 			ret[i] = new LinkedHashMap<Integer,Integer>();
 			for(int j = 0; j < numVerts; ++j) {
-				if(adjMatrix[i][j] != 0) {
-					ret[i].put(j, adjMatrix[i][j]);
+				int weight = get(index(i,j));
+				if(weight != 0) {
+					ret[i].put(j, weight);
 				}
 			}
 		}
 		return ret;
 	}
 	
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#degree(int)
+	 */
+	public int degree(int u) {
+		return degrees[u];
+	}
+	
+	/*
+	 * Scans row u of the matrix for non-zero entries.  This is still O(V) per
+	 * vertex, but it doesn't allocate anything.
+	 * (non-Javadoc)
+	 * @see Graph#forEachNeighbor(int, IntIntConsumer)
+	 */
+	public void forEachNeighbor(int u, IntIntConsumer action) {
+		for(int v = 0; v < numVerts; ++v) {
+			int weight = get(index(u,v));
+			if(weight != 0)
+				action.accept(v, weight);
+		}
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#cursor()
+	 */
+	public NeighborCursor cursor() {
+		return new RowCursor();
+	}
+	
+	/*
+	 * Walks a row of the matrix, skipping the zeros.  With full storage the row is
+	 * consecutive cells; with triangular storage, the cells left of the diagonal
+	 * are read down column u instead.
+	 */
+	private class RowCursor extends NeighborCursor {
+		private int u;
+		private long rowStart; // the index of cell (u,0) with full storage
+		private int next; // the column to look at next
+		private int weight;
+		public void reset(int u) {
+			this.u = u;
+			rowStart = (long)u * numVerts;
+			next = 0;
+		}
+		public int nextTarget() {
+			boolean full = storage == Storage.FULL;
+			while(next < numVerts) {
+				int v = next++;
+				int w = full ? get(rowStart + v) : get(index(u,v));
+				if(w != 0) {
+					weight = w;
+					return v;
+				}
+			}
+			return -1;
+		}
+		public int weight() {
+			return weight;
+		}
+	}
+	
 	/*
 	 * (non-Javadoc)
 	 * @see Graph#changeEdge(int, int, int, boolean)
 	 */
 	public void changeEdge(int u, int v, int weight, boolean dir) {
-		if(weight < 0 && adjMatrix[u][v] >= 0)
+		checkDirected(u,v,dir);
+		long i = index(u,v);
+		int old = get(i);
+		if(weight < 0 && old >= 0)
 			numNegEdges++;
-		else if(weight >= 0 && adjMatrix[u][v] < 0)
+		else if(weight >= 0 && old < 0)
 			numNegEdges--;
-		adjMatrix[u][v] = weight;
-		if(!dir)
+		// a weight of 0 means there's no edge, so this can add or remove one
+		int change = 0;
+		if(weight != 0 && old == 0)
+			change = 1;
+		else if(weight == 0 && old != 0)
+			change = -1;
+		degrees[u] += change;
+		set(i, weight);
+		modified();
+		if(storage == Storage.TRIANGULAR) {
+			if(u != v)
+				degrees[v] += change;
+		}
+		else if(!dir)
 			changeEdge(v,u,weight,true);
 	}
 	public void changeEdge(int u, int v, int weight) {
@@ -0,0 +1,580 @@
+import java.util.Arrays;
+
+/*
+ * A residual network for maximum flow problems, built from a Graph whose edge
+ * weights are the capacities.  Every edge becomes a pair of arcs stored side by
+ * side: arc 2i runs along edge i and arc 2i+1 runs back the other way, so the
+ * reverse of arc a is always a^1.  All that's kept per arc is where it goes and
+ * how much more it can carry, in two int arrays, plus one int per arc to list
+ * each vertex's arcs together.  Compared to the FixedGraph that Ford-Fulkerson
+ * uses, that's O(V+E) memory instead of O(V^2), and pushing flow along an arc
+ * is two array writes.
+ *
+ * Two algorithms fill it in.  Dinic's algorithm repeatedly finds the shortest
+ * augmenting paths with a breadth-first search and saturates them all with a
+ * depth-first search, O(V^2 E) in general and much faster in practice.
+ * Push-relabel (highest label first, with the gap and global relabeling
+ * heuristics) pushes excess flow downhill from the source instead, in O(V^2
+ * sqrt(E)), and is usually the faster of the two on big, dense networks.  Either
+ * way, the running time doesn't depend on how big the capacities are.
+ *
+ * After solving, flows gives how much flow each edge carries and minCut the
+ * vertices on the source side of a minimum cut.  Solving again starts over from
+ * an empty flow.
+ */
+public class FlowNetwork {
+	private int numVerts;
+	private int[] head; // the vertex each arc goes to
+	private int[] residual; // how much more flow each arc can take
+	private int[] capacity; // the capacity of each edge, which is arc 2i's at the start
+	private int[] arcStart; // the arcs leaving u are arcs[arcStart[u]] to arcs[arcStart[u+1]-1]
+	private int[] arcs;
+	private int source = -1; // of the last flow found, or -1 if there isn't one
+	private long value;
+
+	/*
+	 * Builds the network for g.  Edges of weight 0 and loops can't carry any
+	 * flow, so they're left out.
+	 *
+	 * g: The graph, whose edge weights are capacities, so they mustn't be negative.
+	 */
+	public FlowNetwork(Graph g) {
+		if(g.hasNegativeEdges())
+			throw new IllegalArgumentException("Negative flow constraints don't make sense!");
+		numVerts = g.numVertices();
+		EdgeArrays edges = g.edgeArrays();
+		int m = 0;
+		for(int i = 0; i < edges.size(); ++i) {
+			if(edges.weight[i] > 0 && edges.u[i] != edges.v[i])
+				m++;
+		}
+		head = new int[2 * m];
+		residual = new int[2 * m];
+		capacity = new int[m];
+		arcStart = new int[numVerts + 1];
+		int e = 0;
+		for(int i = 0; i < edges.size(); ++i) {
+			if(edges.weight[i] <= 0 || edges.u[i] == edges.v[i])
+				continue;
+			head[2*e] = edges.v[i];
+			head[2*e+1] = edges.u[i];
+			capacity[e] = edges.weight[i];
+			arcStart[edges.u[i] + 1]++;
+			arcStart[edges.v[i] + 1]++;
+			e++;
+		}
+		for(int u = 0; u < numVerts; ++u)
+			arcStart[u+1] += arcStart[u];
+		arcs = new int[2 * m];
+		int[] next = Arrays.copyOf(arcStart, numVerts);
+		for(int a = 0; a < 2 * m; ++a)
+			arcs[next[head[a^1]]++] = a; // arc a leaves the vertex its reverse goes to
+		reset();
+	}
+
+	public int numVertices() {
+		return numVerts;
+	}
+
+	// Empties the network of flow
+	private void reset() {
+		for(int e = 0; e < capacity.length; ++e) {
+			residual[2*e] = capacity[e];
+			residual[2*e+1] = 0;
+		}
+		source = -1;
+	}
+
+	// Sends amount more along arc a
+	private void push(int a, int amount) {
+		residual[a] -= amount;
+		residual[a^1] += amount;
+	}
+
+	private void checkEnds(int source, int sink) {
+		if(source == sink)
+			throw new IllegalArgumentException("The source and sink must be different vertices");
+		if(source < 0 || sink < 0 || source >= numVerts || sink >= numVerts)
+			throw new IllegalArgumentException("No such vertex");
+	}
+
+	/*
+	 * Finds a maximum flow from source to sink with Dinic's algorithm, and
+	 * returns its value.
+	 */
+	public long dinic(int source, int sink) {
+		checkEnds(source, sink);
+		reset();
+		int[] level = new int[numVerts];
+		int[] queue = new int[numVerts];
+		int[] current = new int[numVerts]; // the next arc of each vertex to try
+		int[] path = new int[numVerts]; // the arcs from source to where the search is
+		long flow = 0;
+		while(levels(source, sink, level, queue)) {
+			System.arraycopy(arcStart, 0, current, 0, numVerts);
+			flow += blockingFlow(source, sink, level, current, path);
+		}
+		this.source = source;
+		value = flow;
+		return flow;
+	}
+
+	/*
+	 * Labels each vertex with how many arcs from source it is in the residual
+	 * network, and returns whether sink got a label.
+	 */
+	private boolean levels(int source, int sink, int[] level, int[] queue) {
+		Arrays.fill(level, -1);
+		level[source] = 0;
+		queue[0] = source;
+		int first = 0;
+		int last = 1;
+		while(first < last) {
+			int u = queue[first++];
+			for(int i = arcStart[u]; i < arcStart[u+1]; ++i) {
+				int a = arcs[i];
+				int v = head[a];
+				if(residual[a] > 0 && level[v] < 0) {
+					level[v] = level[u] + 1;
+					if(v == sink)
+						return true;
+					queue[last++] = v;
+				}
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Sends flow along paths that go up one level at every arc until there are
+	 * none left.  This is a depth-first search kept on an explicit stack of arcs,
+	 * so it can't overflow the call stack.  Each vertex remembers the arc it got
+	 * to, so arcs that are full or lead nowhere are only ever tried once.
+	 */
+	private long blockingFlow(int source, int sink, int[] level, int[] current, int[] path) {
+		long flow = 0;
+		int depth = 0;
+		int u = source;
+		while(true) {
+			if(u == sink) {
+				int amount = Integer.MAX_VALUE;
+				for(int i = 0; i < depth; ++i)
+					amount = Math.min(amount, residual[path[i]]);
+				for(int i = 0; i < depth; ++i)
+					push(path[i], amount);
+				flow += amount;
+				// back up to the first arc that's now full
+				int k = 0;
+				while(residual[path[k]] > 0)
+					k++;
+				depth = k;
+				u = k == 0 ? source : head[path[k-1]];
+				continue;
+			}
+			int end = arcStart[u+1];
+			while(current[u] < end) {
+				int a = arcs[current[u]];
+				if(residual[a] > 0 && level[head[a]] == level[u] + 1)
+					break;
+				current[u]++;
+			}
+			if(current[u] < end) {
+				int a = arcs[current[u]];
+				path[depth++] = a;
+				u = head[a];
+			}
+			else if(u == source)
+				return flow;
+			else {
+				// nothing more gets through u, so back up and don't come here again
+				level[u] = -1;
+				depth--;
+				u = depth == 0 ? source : head[path[depth-1]];
+				current[u]++;
+			}
+		}
+	}
+
+	/*
+	 * Finds a maximum flow from source to sink with the highest-label push-relabel
+	 * algorithm, and returns its value.  The first phase only moves excess towards
+	 * sink, and ends with the most flow that can get there, some of it stuck at
+	 * vertices that can't reach sink.  The second phase sends that back to source,
+	 * leaving a proper flow.
+	 */
+	public long pushRelabel(int source, int sink) {
+		checkEnds(source, sink);
+		reset();
+		new PushRelabel(source, sink).run();
+		long flow = 0;
+		for(int i = arcStart[sink]; i < arcStart[sink+1]; ++i) {
+			int a = arcs[i];
+			// flow into sink shows up as room on the arcs leaving it
+			if((a & 1) == 1)
+				flow += residual[a];
+			else
+				flow -= capacity[a >> 1] - residual[a];
+		}
+		this.source = source;
+		value = flow;
+		return flow;
+	}
+
+	/*
+	 * The working state of pushRelabel.
+	 */
+	private class PushRelabel {
+		private int source;
+		private int sink;
+		private int n = numVerts;
+		private long[] excess = new long[n];
+		private int[] height = new int[n]; // a lower bound on each vertex's distance to sink
+		private int[] current = new int[n]; // the next arc of each vertex to try
+		// Active vertices (with excess, and height below n) at each height, as
+		// singly linked stacks, and every vertex below n at each height, as
+		// doubly linked lists, so gaps can be found and cleared quickly.
+		private int[] activeHead = new int[n];
+		private int[] activeNext = new int[n];
+		private int[] allHead = new int[n];
+		private int[] allNext = new int[n];
+		private int[] allPrev = new int[n];
+		private int highestActive;
+		private int highest; // the highest height below n with any vertices at all
+		private long work = 0; // since the last global relabel
+		private long workLimit;
+
+		PushRelabel(int source, int sink) {
+			this.source = source;
+			this.sink = sink;
+			workLimit = 6L * n + arcs.length / 2;
+		}
+
+		void run() {
+			for(int i = arcStart[source]; i < arcStart[source+1]; ++i) {
+				int a = arcs[i];
+				int amount = residual[a];
+				if(amount > 0) {
+					push(a, amount);
+					excess[head[a]] += amount;
+					excess[source] -= amount;
+				}
+			}
+			globalRelabel();
+			while(highestActive >= 0) {
+				int u = activeHead[highestActive];
+				if(u < 0) {
+					highestActive--;
+					continue;
+				}
+				activeHead[highestActive] = activeNext[u];
+				if(height[u] != highestActive)
+					continue; // a gap moved it out of the way
+				discharge(u);
+				if(work > workLimit)
+					globalRelabel();
+			}
+			returnExcess();
+		}
+
+		/*
+		 * Pushes u's excess to neighbors one step closer to sink, relabeling u
+		 * whenever it runs out of them, until its excess is gone or it turns out
+		 * it can't reach sink.
+		 */
+		private void discharge(int u) {
+			int end = arcStart[u+1];
+			while(excess[u] > 0) {
+				if(current[u] == end) {
+					relabel(u);
+					if(height[u] >= n)
+						return;
+					continue;
+				}
+				int a = arcs[current[u]];
+				int v = head[a];
+				if(residual[a] > 0 && height[u] == height[v] + 1) {
+					int amount = (int)Math.min(excess[u], residual[a]);
+					push(a, amount);
+					excess[u] -= amount;
+					if(excess[v] == 0 && v != sink && v != source)
+						activate(v);
+					excess[v] += amount;
+				}
+				else
+					current[u]++;
+			}
+		}
+
+		/*
+		 * Raises u to one above its lowest neighbor it can still push to.  If u was
+		 * the last vertex at its height, nothing above it can reach sink any more,
+		 * and they all go straight to n (the gap heuristic).
+		 */
+		private void relabel(int u) {
+			work += arcStart[u+1] - arcStart[u] + 12;
+			int old = height[u];
+			unlist(u);
+			if(allHead[old] < 0) {
+				for(int h = old + 1; h <= highest; ++h) {
+					for(int v = allHead[h]; v >= 0; v = allNext[v])
+						height[v] = n;
+					allHead[h] = -1;
+				}
+				highest = old - 1;
+				height[u] = n;
+				return;
+			}
+			int lowest = n;
+			for(int i = arcStart[u]; i < arcStart[u+1]; ++i) {
+				int a = arcs[i];
+				if(residual[a] > 0)
+					lowest = Math.min(lowest, height[head[a]] + 1);
+			}
+			height[u] = lowest;
+			current[u] = arcStart[u];
+			if(lowest < n)
+				list(u);
+		}
+
+		/*
+		 * Sets every height to the exact distance to sink in the residual network,
+		 * with a breadth-first search backwards from sink, and rebuilds the lists.
+		 */
+		private void globalRelabel() {
+			work = 0;
+			Arrays.fill(height, n);
+			Arrays.fill(activeHead, -1);
+			Arrays.fill(allHead, -1);
+			highestActive = -1;
+			highest = -1;
+			int[] queue = new int[n];
+			height[sink] = 0;
+			queue[0] = sink;
+			int first = 0;
+			int last = 1;
+			while(first < last) {
+				int v = queue[first++];
+				list(v);
+				if(excess[v] > 0 && v != sink)
+					activate(v);
+				for(int i = arcStart[v]; i < arcStart[v+1]; ++i) {
+					int a = arcs[i];
+					int u = head[a];
+					// the reverse of a goes from u to v
+					if(residual[a^1] > 0 && height[u] == n && u != source) {
+						height[u] = height[v] + 1;
+						queue[last++] = u;
+					}
+				}
+			}
+			for(int u = 0; u < n; ++u)
+				current[u] = arcStart[u];
+		}
+
+		private void activate(int v) {
+			int h = height[v];
+			if(h >= n)
+				return;
+			activeNext[v] = activeHead[h];
+			activeHead[h] = v;
+			if(h > highestActive)
+				highestActive = h;
+		}
+
+		private void list(int v) {
+			int h = height[v];
+			allPrev[v] = -1;
+			allNext[v] = allHead[h];
+			if(allHead[h] >= 0)
+				allPrev[allHead[h]] = v;
+			allHead[h] = v;
+			if(h > highest)
+				highest = h;
+		}
+
+		private void unlist(int v) {
+			int h = height[v];
+			if(allPrev[v] >= 0)
+				allNext[allPrev[v]] = allNext[v];
+			else
+				allHead[h] = allNext[v];
+			if(allNext[v] >= 0)
+				allPrev[allNext[v]] = allPrev[v];
+		}
+
+		/*
+		 * The second phase: any excess left can't reach sink, so it goes back the
+		 * way it came.  Heights are set to n plus the distance back to source, and
+		 * the stuck vertices are discharged as before until it's all home.
+		 */
+		private void returnExcess() {
+			int unreached = Integer.MAX_VALUE/2; // can't overflow when relabeling
+			Arrays.fill(height, unreached);
+			int[] queue = new int[n];
+			height[source] = n;
+			queue[0] = source;
+			int first = 0;
+			int last = 1;
+			while(first < last) {
+				int v = queue[first++];
+				for(int i = arcStart[v]; i < arcStart[v+1]; ++i) {
+					int a = arcs[i];
+					int u = head[a];
+					if(residual[a^1] > 0 && height[u] == unreached) {
+						height[u] = height[v] + 1;
+						queue[last++] = u;
+					}
+				}
+			}
+			// a vertex with excess got it from source, so it can send it back
+			last = 0;
+			for(int u = 0; u < n; ++u) {
+				current[u] = arcStart[u];
+				if(excess[u] > 0 && u != source && u != sink)
+					queue[last++] = u;
+			}
+			first = 0;
+			int waiting = last;
+			last %= n;
+			while(waiting > 0) {
+				int u = queue[first];
+				first = (first + 1) % n;
+				waiting--;
+				int end = arcStart[u+1];
+				while(excess[u] > 0) {
+					if(current[u] == end) {
+						int lowest = unreached;
+						for(int i = arcStart[u]; i < end; ++i) {
+							int a = arcs[i];
+							if(residual[a] > 0)
+								lowest = Math.min(lowest, height[head[a]] + 1);
+						}
+						height[u] = lowest;
+						current[u] = arcStart[u];
+						continue;
+					}
+					int a = arcs[current[u]];
+					int v = head[a];
+					if(residual[a] > 0 && height[u] == height[v] + 1) {
+						int amount = (int)Math.min(excess[u], residual[a]);
+						push(a, amount);
+						excess[u] -= amount;
+						if(excess[v] == 0 && v != source && v != sink) {
+							queue[last] = v;
+							last = (last + 1) % n;
+							waiting++;
+						}
+						excess[v] += amount;
+					}
+					else
+						current[u]++;
+				}
+			}
+		}
+	}
+
+	private void checkSolved() {
+		if(source < 0)
+			throw new IllegalStateException("No flow has been found yet");
+	}
+
+	/*
+	 * Returns the value of the last flow found.
+	 */
+	public long value() {
+		checkSolved();
+		return value;
+	}
+
+	/*
+	 * Returns the flow found, as the edges that carry any, each with the amount
+	 * it carries as its weight.
+	 */
+	public EdgeArrays flows() {
+		checkSolved();
+		int count = 0;
+		for(int e = 0; e < capacity.length; ++e) {
+			if(residual[2*e] < capacity[e])
+				count++;
+		}
+		int[] us = new int[count];
+		int[] vs = new int[count];
+		int[] amounts = new int[count];
+		int i = 0;
+		for(int e = 0; e < capacity.length; ++e) {
+			if(residual[2*e] < capacity[e]) {
+				us[i] = head[2*e+1];
+				vs[i] = head[2*e];
+				amounts[i] = capacity[e] - residual[2*e];
+				i++;
+			}
+		}
+		return new EdgeArrays(us, vs, amounts);
+	}
+
+	/*
+	 * Returns the total flow along the edges from u to v in the last flow found.
+	 */
+	public int flow(int u, int v) {
+		checkSolved();
+		int total = 0;
+		for(int i = arcStart[u]; i < arcStart[u+1]; ++i) {
+			int a = arcs[i];
+			if((a & 1) == 0 && head[a] == v)
+				total += capacity[a >> 1] - residual[a];
+		}
+		return total;
+	}
+
+	/*
+	 * Returns which vertices are on the source side of a minimum cut: the ones
+	 * the source can still reach in the residual network.  The edges from those
+	 * to the rest are all full, and their capacities add up to the flow's value.
+	 */
+	public boolean[] minCut() {
+		checkSolved();
+		boolean[] reached = new boolean[numVerts];
+		int[] queue = new int[numVerts];
+		reached[source] = true;
+		queue[0] = source;
+		int first = 0;
+		int last = 1;
+		while(first < last) {
+			int u = queue[first++];
+			for(int i = arcStart[u]; i < arcStart[u+1]; ++i) {
+				int a = arcs[i];
+				int v = head[a];
+				if(residual[a] > 0 && !reached[v]) {
+					reached[v] = true;
+					queue[last++] = v;
+				}
+			}
+		}
+		return reached;
+	}
+
+	/*
+	 * Returns the edges that cross the minimum cut, each with its capacity.
+	 */
+	public EdgeArrays cutEdges() {
+		boolean[] side = minCut();
+		int count = 0;
+		for(int e = 0; e < capacity.length; ++e) {
+			if(side[head[2*e+1]] && !side[head[2*e]])
+				count++;
+		}
+		int[] us = new int[count];
+		int[] vs = new int[count];
+		int[] caps = new int[count];
+		int i = 0;
+		for(int e = 0; e < capacity.length; ++e) {
+			if(side[head[2*e+1]] && !side[head[2*e]]) {
+				us[i] = head[2*e+1];
+				vs[i] = head[2*e];
+				caps[i] = capacity[e];
+				i++;
+			}
+		}
+		return new EdgeArrays(us, vs, caps);
+	}
+}
@@ -1,3 +1,5 @@
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.ArrayList;
 
@@ -28,6 +30,17 @@ class Edge implements Comparable<Edge> {
 }
 
 public abstract class Graph {
+	// Counts modifications, so we know when the cached views below have gone stale
+	private int version = 0;
+	// Volatile like the caches below, so a view built on one thread is seen whole
+	// by the others; views are immutable and carry their own version.
+	private volatile MatrixView matrixView;
+	private volatile AdjacencyView adjacencyView;
+	// The answer to maxEdgeWeight, and the version it's for, published together
+	// so a thread can never see one without the other.
+	private volatile Cached<Integer> maxWeight;
+	private volatile Cached<Graph> reverse; // the same for reverse
+	
 	/*
 	 * A method to add an edge to the graph, which does nothing if the edge
 	 * already exists in the graph.  This version has all of the possible
@@ -81,13 +94,13 @@ public abstract class Graph {
 			return false;
 		}
 		int numVerts = numVertices();
-		int[][] otherMat = other.getAdjMatrix();
-		int[][] thisMat = getAdjMatrix();
 		if(numVerts != other.numVertices())
 			return false;
+		MatrixView otherMat = other.matrixView();
+		MatrixView thisMat = matrixView();
 		for(int i = 0; i < numVerts; ++i) {
 			for(int j = 0; j < numVerts; ++j)
-				if(otherMat[i][j] != thisMat[i][j])
+				if(otherMat.get(i,j) != thisMat.get(i,j))
 					return false;
 		}
 		return true;
@@ -106,11 +119,193 @@ public abstract class Graph {
 	public abstract Map<Integer,Integer>[] getAdjList(); 
 	public abstract int[][] getAdjMatrix();
 	
+	/*
+	 * Read-only versions of the two representations above.  Unlike getAdjList and
+	 * getAdjMatrix, these are cached, and only rebuilt after the graph has been
+	 * modified, so calling them over and over on a graph that doesn't change is
+	 * O(1) after the first time.
+	 */
+	public MatrixView matrixView() {
+		int current = version();
+		MatrixView view = matrixView;
+		if(view == null || view.version() != current) {
+			view = new MatrixView(getAdjMatrix(), current);
+			matrixView = view;
+		}
+		return view;
+	}
+	public AdjacencyView adjacencyView() {
+		int current = version();
+		AdjacencyView view = adjacencyView;
+		if(view == null || view.version() != current) {
+			view = new AdjacencyView(this, current);
+			adjacencyView = view;
+		}
+		return view;
+	}
+	
+	/*
+	 * Returns the largest weight of any edge, or 0 if there are no edges.  This
+	 * takes a pass over every edge, but the answer is kept until the graph is
+	 * modified, so asking again (dijkstra does, every time) is O(1).
+	 */
+	public int maxEdgeWeight() {
+		int current = version();
+		Cached<Integer> cached = maxWeight;
+		if(cached == null || cached.version != current) {
+			int max = 0;
+			boolean any = false;
+			NeighborCursor c = cursor();
+			for(int u = 0; u < numVertices(); ++u) {
+				c.reset(u);
+				for(int v = c.nextTarget(); v >= 0; v = c.nextTarget()) {
+					if(!any || c.weight() > max)
+						max = c.weight();
+					any = true;
+				}
+			}
+			cached = new Cached<Integer>(current, max);
+			maxWeight = cached;
+		}
+		return cached.value;
+	}
+	
+	/*
+	 * A cached answer, with the version of the graph it was worked out for.  It's
+	 * immutable, so once a thread reads one through a volatile field it sees all
+	 * of it.
+	 */
+	private static final class Cached<T> {
+		final int version;
+		final T value;
+		Cached(int version, T value) {
+			this.version = version;
+			this.value = value;
+		}
+	}
+	
+	/*
+	 * Whether other threads may modify the graph while it's being searched, so
+	 * that a search can meet edges heavier than maxEdgeWeight said there were.
+	 * Only ConcurrentGraph allows that.
+	 */
+	public boolean concurrentlyModifiable() {
+		return false;
+	}
+	
+	/*
+	 * Returns a graph with every edge of this one turned around, for searching
+	 * backwards from a vertex.  Like maxEdgeWeight, it's built once and then kept
+	 * until the graph is modified, and it's published through a volatile field,
+	 * so searches on other threads (of a snapshot, say) can share it.
+	 */
+	public Graph reverse() {
+		int current = version();
+		Cached<Graph> cached = reverse;
+		if(cached == null || cached.version != current) {
+			EdgeArrays edges = edgeArrays();
+			cached = new Cached<Graph>(current, new CsrGraph(numVertices(), edges.v, edges.u, edges.weight, edges.size()));
+			reverse = cached;
+		}
+		return cached.value;
+	}
+	
+	/*
+	 * Returns a number that changes every time the graph is modified.  Two calls
+	 * that return the same value saw the same graph.
+	 */
+	public int version() {
+		return version;
+	}
+	
+	/*
+	 * Subclasses must call this whenever they add or change an edge, so that the
+	 * cached views get rebuilt.  Subclasses that override this must also override
+	 * version.
+	 */
+	protected void modified() {
+		version++;
+	}
+	
+	/*
+	 * Returns an immutable copy of the graph, which can be searched by any number of
+	 * threads at once while the original carries on changing.  The copy is a
+	 * CsrGraph, so it's usually faster to search than the original as well.  This
+	 * version reads the graph through a cursor, so nobody may modify it until it
+	 * returns; ConcurrentGraph overrides it with one that doesn't stop its writers,
+	 * and graphs that can't be modified just return themselves.
+	 */
+	public Graph snapshot() {
+		return new CsrGraph(this);
+	}
+	
 	/*
 	 * Returns the number of vertices in this graph.
 	 */
 	public abstract int numVertices();
 	
+	/*
+	 * These functions walk the edges leaving a single vertex without building a
+	 * whole adjacency list, and are what the algorithms in GraphAlgs use in their
+	 * inner loops.  The versions here fall back on getAdjList, so they work for
+	 * any graph, but every graph in this package overrides them with something
+	 * that reads its own storage directly.
+	 */
+	
+	/*
+	 * Returns the number of edges leaving u.
+	 */
+	public int degree(int u) {
+		return getAdjList()[u].size();
+	}
+	
+	/*
+	 * Calls action once for every edge leaving u, with the edge's target and weight.
+	 * 
+	 * u: The vertex whose edges we want.
+	 * action: What to do with each edge.
+	 */
+	public void forEachNeighbor(int u, IntIntConsumer action) {
+		NeighborCursor c = cursor();
+		c.reset(u);
+		for(int v = c.nextTarget(); v >= 0; v = c.nextTarget())
+			action.accept(v, c.weight());
+	}
+	
+	/*
+	 * Returns a new cursor over this graph.  See NeighborCursor for how to use it.
+	 */
+	public NeighborCursor cursor() {
+		return new AdjListCursor(getAdjList());
+	}
+	
+	/*
+	 * The fallback cursor, which walks a copy of the adjacency list taken when the
+	 * cursor was made.
+	 */
+	private static class AdjListCursor extends NeighborCursor {
+		private Map<Integer,Integer>[] edges;
+		private Iterator<Map.Entry<Integer,Integer>> it;
+		private int weight;
+		
+		AdjListCursor(Map<Integer,Integer>[] edges) {
+			this.edges = edges;
+		}
+		public void reset(int u) {
+			it = edges[u].entrySet().iterator();
+		}
+		public int nextTarget() {
+			if(!it.hasNext())
+				return -1;
+			Map.Entry<Integer,Integer> e = it.next();
+			weight = e.getValue();
+			return e.getKey();
+		}
+		public int weight() {
+			return weight;
+		}
+	}
+	
 	/*
 	 * Gets the weight of the edge going from u to v in this graph.  It's abstract
 	 * because it will depend upon how the graph is represented internally.
@@ -171,15 +366,15 @@ public abstract class Graph {
 	 * adjacency matrix.
 	 */
 	public String toString() {
-		String ret = "";
+		StringBuilder ret = new StringBuilder();
 		int numVerts = numVertices();
-		int[][] adjMatrix = getAdjMatrix();
+		MatrixView adjMatrix = matrixView();
 		for(int i = 0; i < numVerts; ++i) {
 			for(int j = 0; j < numVerts; ++j)
-				ret += adjMatrix[i][j] + " ";
-			ret += "\n";
+				ret.append(adjMatrix.get(i,j)).append(' ');
+			ret.append('\n');
 		}
-		return ret;
+		return ret.toString();
 	}
 		
 	/*
@@ -190,15 +385,51 @@ public abstract class Graph {
 	 */
 	public ArrayList<Edge> getEdgeList() {
 		ArrayList<Edge> allEdges = new ArrayList<Edge>();
-		// Use the adjacency list, since it will involve less wasted work
-		Map<Integer, Integer>[] edges = getAdjList();
+		// Walk the rows directly, since it will involve less wasted work
+		NeighborCursor c = cursor();
 		for(int u = 0; u < numVertices(); ++u) {
-			for(int v : edges[u].keySet()) {
-				int weight = edges[u].get(v);
-				Edge e = new Edge(u,v,weight);
-				allEdges.add(e);
-			}
+			c.reset(u);
+			for(int v = c.nextTarget(); v >= 0; v = c.nextTarget())
+				allEdges.add(new Edge(u,v,c.weight()));
 		}
 		return allEdges;
 	}
+	
+	/*
+	 * Returns every edge in the graph as a set of parallel arrays (see EdgeArrays),
+	 * in row order.  Undirected edges show up once in each direction, the same as
+	 * in getEdgeList.  The arrays are a copy, so the caller is free to sort them.
+	 * They take 12 bytes per edge on the heap, so algorithms that should also run
+	 * on graphs bigger than memory (a MappedGraph) walk a cursor instead.
+	 */
+	public EdgeArrays edgeArrays() {
+		int n = numVertices();
+		int m = 0;
+		for(int u = 0; u < n; ++u)
+			m += degree(u);
+		int[] us = new int[m];
+		int[] vs = new int[m];
+		int[] ws = new int[m];
+		int next = 0;
+		NeighborCursor c = cursor();
+		for(int u = 0; u < n; ++u) {
+			c.reset(u);
+			for(int v = c.nextTarget(); v >= 0; v = c.nextTarget()) {
+				// the count is only a guess if the graph changed in between
+				if(next == us.length) {
+					int grown = Math.max(16, us.length + (us.length >> 1));
+					us = Arrays.copyOf(us, grown);
+					vs = Arrays.copyOf(vs, grown);
+					ws = Arrays.copyOf(ws, grown);
+				}
+				us[next] = u;
+				vs[next] = v;
+				ws[next] = c.weight();
+				next++;
+			}
+		}
+		if(next < us.length)
+			return new EdgeArrays(Arrays.copyOf(us, next), Arrays.copyOf(vs, next), Arrays.copyOf(ws, next));
+		return new EdgeArrays(us, vs, ws);
+	}
 }
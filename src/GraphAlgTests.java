@@ -1,3 +1,6 @@
+import java.util.ArrayList;
+import java.util.List;
+
 import junit.framework.TestCase;
 
 // Tests for GraphAlgs.java.  Test names indicate what method they're designed to test.
@@ -475,4 +478,1111 @@ public class GraphAlgTests extends TestCase {
 			}
 		}
 	}
+	
+	public void test_csrGraph() {
+		Graph[] graphs = {g, g2, g3, g4, g5, g6, g7, g8};
+		for(Graph orig : graphs) {
+			CsrGraph csr = new CsrGraph(orig);
+			assertEquals(orig, csr);
+			assertEquals(orig.hasNegativeEdges(), csr.hasNegativeEdges());
+			for(int u = 0; u < orig.numVertices(); ++u)
+				for(int v = 0; v < orig.numVertices(); ++v)
+					assertEquals(orig.edgeExists(u,v), csr.edgeExists(u,v));
+		}
+		int[] dists = GraphAlgs.dijkstra(new CsrGraph(g2), 7);
+		int[] expected = {2,4,4,8,7,14,13,0};
+		for(int i = 0; i < dists.length; ++i)
+			assertEquals(dists[i], expected[i]);
+		// repeated edges keep the first weight, like addEdge
+		int[] us = {0,1,0,2};
+		int[] vs = {1,2,1,0};
+		int[] ws = {4,5,9,-1};
+		CsrGraph small = new CsrGraph(3, us, vs, ws, 4);
+		assertEquals(small.numEdges(), 3);
+		assertEquals(small.edgeWeight(0,1), 4);
+		assertEquals(small.edgeWeight(1,0), 0);
+		assertTrue(small.hasNegativeEdges());
+	}
+	
+	public void test_neighborCursor() {
+		Graph[] graphs = {g, g2, g4, g6, g8, new CsrGraph(g2)};
+		for(Graph gr : graphs) {
+			java.util.Map<Integer,Integer>[] adj = gr.getAdjList();
+			NeighborCursor c = gr.cursor();
+			for(int u = 0; u < gr.numVertices(); ++u) {
+				assertEquals(gr.degree(u), adj[u].size());
+				int count = 0;
+				c.reset(u);
+				for(int v = c.nextTarget(); v >= 0; v = c.nextTarget()) {
+					assertEquals((int)adj[u].get(v), c.weight());
+					++count;
+				}
+				assertEquals(count, adj[u].size());
+				final int[] sum = new int[1];
+				gr.forEachNeighbor(u, new IntIntConsumer() {
+					public void accept(int target, int weight) {
+						sum[0] += weight;
+					}
+				});
+				int expected = 0;
+				for(int w : adj[u].values())
+					expected += w;
+				assertEquals(sum[0], expected);
+			}
+		}
+		// setting a weight to 0 removes the edge from a FixedGraph
+		g.changeEdge(0, 1, 0);
+		assertEquals(g.degree(0), 2);
+		assertEquals(g.degree(1), 2);
+	}
+	
+	public void test_cachedViews() {
+		MatrixView m = g.matrixView();
+		assertSame(m, g.matrixView());
+		AdjacencyView a = g4.adjacencyView();
+		assertSame(a, g4.adjacencyView());
+		assertEquals(a.row(1).size(), 4);
+		int before = g.version();
+		g.changeEdge(0, 1, 3);
+		assertTrue(g.version() != before);
+		assertEquals(m.get(0,1), 7);
+		assertEquals(g.matrixView().get(0,1), 3);
+		g4.addEdge(2, 3);
+		assertEquals(g4.adjacencyView().row(2).size(), 2);
+		Exception exp = null;
+		try {
+			g4.adjacencyView().row(0).put(5, 5);
+		}
+		catch(UnsupportedOperationException e) {
+			exp = e;
+		}
+		assertNotNull(exp);
+	}
+	
+	public void test_mappedGraph() throws java.io.IOException {
+		java.io.File f = java.io.File.createTempFile("graph", ".bin");
+		f.deleteOnExit();
+		Graph[] graphs = {g2, g4, g8};
+		for(Graph orig : graphs) {
+			MappedGraph.write(orig, f);
+			MappedGraph mapped = new MappedGraph(f);
+			assertEquals(orig, mapped);
+			assertEquals(orig.hasNegativeEdges(), mapped.hasNegativeEdges());
+			int[] expected = GraphAlgs.bellmanFord(orig, 0);
+			int[] dists = GraphAlgs.bellmanFord(mapped, 0);
+			for(int i = 0; i < dists.length; ++i)
+				assertEquals(dists[i], expected[i]);
+		}
+		MappedGraph.write(g2, f);
+		int[] dists = GraphAlgs.dijkstra(new MappedGraph(f), 7);
+		int[] expected = {2,4,4,8,7,14,13,0};
+		for(int i = 0; i < dists.length; ++i)
+			assertEquals(dists[i], expected[i]);
+	}
+	
+	public void test_graphLoader() throws java.io.IOException {
+		java.io.File f = java.io.File.createTempFile("edges", ".txt");
+		f.deleteOnExit();
+		java.io.PrintWriter out = new java.io.PrintWriter(f);
+		out.println("# wikipedia's article on dijkstra");
+		out.println("0 1 7");
+		out.println("0\t5\t14");
+		out.println("0,2,9");
+		out.println("1 2 10\r");
+		out.println();
+		out.println("1 3 15");
+		out.println("2 3 11");
+		out.println("2 5 2");
+		out.println("  3 4 6");
+		out.print("4 5 9");
+		out.close();
+		assertEquals(g, new GraphLoader().loadText(f));
+		assertEquals(g, new GraphLoader(false, DuplicatePolicy.KEEP_FIRST, 3).loadText(f));
+		// a binary file with a repeated edge
+		java.nio.ByteBuffer buf = java.nio.ByteBuffer.allocate(36).order(java.nio.ByteOrder.LITTLE_ENDIAN);
+		buf.putInt(0).putInt(1).putInt(4);
+		buf.putInt(1).putInt(2).putInt(-3);
+		buf.putInt(0).putInt(1).putInt(6);
+		java.io.FileOutputStream bin = new java.io.FileOutputStream(f);
+		bin.write(buf.array());
+		bin.close();
+		CsrGraph loaded = new GraphLoader(true, DuplicatePolicy.SUM, 2).loadBinary(f);
+		assertEquals(loaded.numVertices(), 3);
+		assertEquals(loaded.edgeWeight(0,1), 10);
+		assertEquals(loaded.edgeWeight(1,0), 0);
+		assertTrue(loaded.hasNegativeEdges());
+		Exception exp = null;
+		try {
+			new GraphLoader(true, DuplicatePolicy.REJECT, 1).loadBinary(f);
+		}
+		catch(IllegalArgumentException e) {
+			exp = e;
+		}
+		assertNotNull(exp);
+	}
+	
+	public void test_triangularStorage() {
+		FixedGraph tri = new FixedGraph(g, FixedGraph.Storage.TRIANGULAR);
+		assertEquals(g, tri);
+		int[][] expected = GraphAlgs.allPairsSP(g);
+		int[][] res = GraphAlgs.allPairsSP(tri);
+		for(int i = 0; i < expected.length; ++i)
+			for(int j = 0; j < expected.length; ++j)
+				assertEquals(expected[i][j], res[i][j]);
+		tri.changeEdge(1, 0, 3);
+		assertEquals(tri.edgeWeight(0,1), 3);
+		assertEquals(GraphAlgs.dijkstraSP(tri, 0, 1), 3);
+		tri.changeEdge(0, 1, 0);
+		assertFalse(tri.edgeExists(1,0));
+		assertEquals(tri.degree(1), 2);
+		Exception exp = null;
+		try {
+			tri.addDirectedEdge(3, 5);
+		}
+		catch(IllegalArgumentException e) {
+			exp = e;
+		}
+		assertNotNull(exp);
+		exp = null;
+		try {
+			new FixedGraph(g7, FixedGraph.Storage.TRIANGULAR);
+		}
+		catch(IllegalArgumentException e) {
+			exp = e;
+		}
+		assertNotNull(exp);
+	}
+	
+	public void test_compressedGraph() {
+		Graph[] graphs = {g, g2, g3, g4, g5, g6, g7, g8};
+		for(Graph orig : graphs) {
+			CompressedGraph comp = new CompressedGraph(orig);
+			assertEquals(orig, comp);
+			assertEquals(orig.hasNegativeEdges(), comp.hasNegativeEdges());
+			for(int u = 0; u < orig.numVertices(); ++u) {
+				assertEquals(orig.degree(u), comp.degree(u));
+				for(int v = 0; v < orig.numVertices(); ++v)
+					assertEquals(orig.edgeWeight(u,v), comp.edgeWeight(u,v));
+			}
+		}
+		Graph comp = new CompressedGraph(g2);
+		int[] dists = GraphAlgs.dijkstra(comp, 7);
+		int[] expected = {2,4,4,8,7,14,13,0};
+		for(int i = 0; i < dists.length; ++i)
+			assertEquals(dists[i], expected[i]);
+		assertTrue(GraphAlgs.path(new CompressedGraph(g4), 6, 11));
+		assertFalse(GraphAlgs.path(new CompressedGraph(g4), 0, 8));
+		
+		// neighbours within 40 ids of each other, as in a road network
+		java.util.Random rand = new java.util.Random(67);
+		int n = 20000;
+		ExpandableGraph local = new ExpandableGraph(), unit = new ExpandableGraph();
+		for(int u = 0; u < n; ++u)
+			for(int k = 0; k < 8; ++k) {
+				int v = Math.min(n - 1, u + 1 + rand.nextInt(40));
+				local.addEdge(u, v, rand.nextInt(100) + 1, true);
+				unit.addEdge(u, v, 1, true);
+			}
+		CsrGraph csr = new CsrGraph(local);
+		long csrBytes = 4L * (n + 1) + 8L * csr.numEdges();
+		assertTrue(new CompressedGraph(csr).sizeInBytes() * 3 <= csrBytes);
+		// uniform weights are stored once for the whole graph
+		csr = new CsrGraph(unit);
+		csrBytes = 4L * (n + 1) + 8L * csr.numEdges();
+		assertTrue(new CompressedGraph(csr).sizeInBytes() * 6 <= csrBytes);
+	}
+	
+	public void test_intIntMap() {
+		IntIntMap m = new IntIntMap();
+		for(int i = 0; i < 1000; ++i)
+			m.put(i * 7, i, -1);
+		assertEquals(m.size(), 1000);
+		for(int i = 0; i < 1000; i += 2)
+			assertEquals(m.remove(i * 7, -1), i);
+		assertEquals(m.size(), 500);
+		for(int i = 0; i < 1000; ++i)
+			assertEquals(m.get(i * 7, -1), i % 2 == 0 ? -1 : i);
+		assertFalse(m.putIfAbsent(7, 0));
+		assertTrue(m.putIfAbsent(-3, 4));
+		int count = 0;
+		for(int i = m.nextSlot(0); i >= 0; i = m.nextSlot(i+1))
+			++count;
+		assertEquals(count, 501);
+	}
+	
+	public void test_concurrentGraph() throws InterruptedException {
+		final ConcurrentGraph cg = new ConcurrentGraph();
+		Thread[] writers = new Thread[4];
+		for(int t = 0; t < writers.length; ++t) {
+			final int offset = t;
+			writers[t] = new Thread() {
+				public void run() {
+					// each thread adds a path through every fourth vertex
+					for(int i = offset; i + 4 < 20000; i += 4)
+						cg.addEdge(i, i + 4, i % 3 == 0 ? -1 : 1, true);
+				}
+			};
+			writers[t].start();
+		}
+		for(Thread w : writers)
+			w.join();
+		assertEquals(cg.numVertices(), 20000);
+		assertTrue(cg.hasNegativeEdges());
+		for(int i = 0; i + 4 < 20000; ++i)
+			assertEquals(cg.edgeWeight(i, i + 4), i % 3 == 0 ? -1 : 1);
+		ConcurrentGraph copy = new ConcurrentGraph(g2);
+		assertEquals(copy, g2);
+		int[] dists = GraphAlgs.dijkstra(copy, 7);
+		int[] expected = {2,4,4,8,7,14,13,0};
+		for(int i = 0; i < dists.length; ++i)
+			assertEquals(dists[i], expected[i]);
+		copy.changeEdge(0, 1, -2);
+		assertTrue(copy.hasNegativeEdges());
+		copy.changeEdge(0, 1, 2);
+		assertFalse(copy.hasNegativeEdges());
+	}
+	
+	public void test_snapshot() throws Exception {
+		// the copy of a mutable graph doesn't see later changes
+		ExpandableGraph e = new ExpandableGraph();
+		e.addEdge(0,1,3);
+		Graph snap = e.snapshot();
+		e.addEdge(1,2,4);
+		assertEquals(2, snap.numVertices());
+		assertFalse(snap.edgeExists(1,2));
+		assertEquals(3, snap.edgeWeight(1,0));
+		assertSame(snap, snap.snapshot());
+		
+		// A writer builds a chain one edge at a time, so every snapshot taken while
+		// it works must hold some prefix of the chain, and keep holding it.
+		final ConcurrentGraph g = new ConcurrentGraph(1);
+		final int n = 20000;
+		Thread writer = new Thread() {
+			public void run() {
+				for(int i = 0; i < n; ++i) {
+					g.addEdge(i, i+1, i+1, true);
+					if(i > 0)
+						g.changeEdge(i-1, i, -i, true);
+				}
+			}
+		};
+		writer.start();
+		List<Graph> snaps = new ArrayList<Graph>();
+		List<Integer> lengths = new ArrayList<Integer>();
+		while(writer.isAlive()) {
+			Graph s = g.snapshot();
+			int len = 0;
+			while(len + 1 < s.numVertices() && s.edgeExists(len, len+1))
+				len++;
+			for(int i = len; i < s.numVertices(); ++i)
+				assertEquals(0, s.degree(i));
+			// the edge before the last may or may not have been changed yet
+			for(int i = 0; i + 2 < len; ++i)
+				assertEquals(-(i + 1), s.edgeWeight(i, i+1));
+			if(len > 0)
+				assertEquals(len, s.edgeWeight(len-1, len));
+			snaps.add(s);
+			lengths.add(len);
+		}
+		writer.join();
+		for(int k = 0; k < snaps.size(); ++k) {
+			Graph s = snaps.get(k);
+			int len = lengths.get(k);
+			for(int i = 0; i < len; ++i)
+				assertTrue(s.edgeExists(i, i+1));
+			assertFalse(len + 1 < s.numVertices() && s.edgeExists(len, len+1));
+		}
+		assertEquals(n, ((CsrGraph)g.snapshot()).numEdges());
+		
+		// undirected edges never show up in a snapshot in just one direction
+		final ConcurrentGraph ug = new ConcurrentGraph(1000);
+		Thread[] writers = new Thread[2];
+		for(int t = 0; t < writers.length; ++t) {
+			final int seed = t;
+			writers[t] = new Thread() {
+				public void run() {
+					java.util.Random rand = new java.util.Random(seed);
+					for(int i = 0; i < 20000; ++i)
+						ug.addEdge(rand.nextInt(1000), rand.nextInt(1000), 1, false);
+				}
+			};
+			writers[t].start();
+		}
+		boolean alive = true;
+		while(alive) {
+			alive = writers[0].isAlive() || writers[1].isAlive();
+			Graph s = ug.snapshot();
+			EdgeArrays edges = s.edgeArrays();
+			for(int i = 0; i < edges.size(); ++i)
+				assertTrue(s.edgeExists(edges.v[i], edges.u[i]));
+		}
+		for(Thread t : writers)
+			t.join();
+	}
+	
+	public void test_edgeArrays() {
+		Graph[] graphs = {g, g2, g3, g4, g5, g6, g7, g8};
+		for(Graph orig : graphs) {
+			EdgeArrays edges = orig.edgeArrays();
+			EdgeArrays csrEdges = new CsrGraph(orig).edgeArrays();
+			assertEquals(orig.getEdgeList().size(), edges.size());
+			assertEquals(edges.size(), csrEdges.size());
+			for(int e = 0; e < edges.size(); ++e) {
+				assertEquals(edges.weight[e], orig.edgeWeight(edges.u[e], edges.v[e]));
+				assertEquals(csrEdges.weight[e], orig.edgeWeight(csrEdges.u[e], csrEdges.v[e]));
+			}
+		}
+		// ties keep their order
+		int[] us = {0,1,2,3,4};
+		int[] vs = {1,2,3,4,0};
+		int[] ws = {5,-2,5,0,-2};
+		EdgeArrays edges = new EdgeArrays(us, vs, ws);
+		edges.sortByWeight();
+		int[] order = {1,4,3,0,2};
+		for(int e = 0; e < order.length; ++e) {
+			assertEquals(order[e], edges.u[e]);
+			assertEquals(ws[order[e]], edges.weight[e]);
+		}
+	}
+	
+	public void test_edgeArraysWhileWriting() throws InterruptedException {
+		// edges only get added, so everything read out must still be there after
+		final ConcurrentGraph cg = new ConcurrentGraph(2000);
+		Thread writer = new Thread() {
+			public void run() {
+				java.util.Random rand = new java.util.Random(53);
+				for(int i = 0; i < 100000; ++i)
+					cg.addEdge(rand.nextInt(2000), rand.nextInt(2000), rand.nextInt(50) + 1, false);
+			}
+		};
+		writer.start();
+		do {
+			EdgeArrays edges = cg.edgeArrays();
+			for(int i = 0; i < edges.size(); ++i)
+				assertEquals(edges.weight[i], cg.edgeWeight(edges.u[i], edges.v[i]));
+			EdgeArrays tree = GraphAlgs.minSpanningEdges(cg);
+			assertTrue(tree.size() < cg.numVertices());
+		} while(writer.isAlive());
+		writer.join();
+	}
+	
+	public void test_daryHeap() {
+		int[] values = {10,5,13,7,25,15,20,45,30,2};
+		for(int arity = 2; arity <= 5; ++arity) {
+			DaryHeap d = new DaryHeap(13, arity);
+			for(int i = 0; i < values.length; ++i)
+				d.add(i, values[i]);
+			assertEquals(2, d.peekTopValue());
+			assertEquals(9, d.dequeue());
+			d.updateKey(8, 0);
+			d.updateKey(2, 1);
+			d.updateKey(3, 100); // keys can move down too
+			int[] expected = {8,2,1,0,5,6,4,7,3};
+			for(int i = 0; i < expected.length; ++i)
+				assertEquals(expected[i], d.dequeue());
+			assertTrue(d.isEmpty());
+			assertEquals(-1, d.dequeue());
+			// clearing leaves it ready to use again
+			d.add(4, 3);
+			d.add(5, 1);
+			d.clear();
+			assertFalse(d.hasKey(4));
+			d.add(4, 6);
+			assertEquals(4, d.peekTop());
+		}
+		// a big random run against a sort
+		java.util.Random rand = new java.util.Random(11);
+		DaryHeap d = new DaryHeap(10000);
+		int[] vals = new int[10000];
+		for(int i = 0; i < vals.length; ++i) {
+			vals[i] = rand.nextInt(1000);
+			d.add(i, vals[i]);
+		}
+		for(int i = 0; i < vals.length; i += 3) {
+			vals[i] = rand.nextInt(1000);
+			d.updateKey(i, vals[i]);
+		}
+		int[] sorted = vals.clone();
+		java.util.Arrays.sort(sorted);
+		for(int i = 0; i < sorted.length; ++i) {
+			assertEquals(sorted[i], d.peekTopValue());
+			assertEquals(sorted[i], vals[d.dequeue()]);
+		}
+	}
+	
+	public void test_bucketHeap() {
+		int[] values = {10,5,13,7,25,15,20,45,30,2};
+		BucketHeap b = new BucketHeap(13, 45);
+		for(int i = 0; i < values.length; ++i)
+			b.add(i, values[i]);
+		assertEquals(2, b.peekTopValue());
+		assertEquals(9, b.dequeue());
+		b.updateKey(8, 4);
+		b.updateKey(2, 6);
+		int[] expected = {8,1,2,3,0,5,6,4,7};
+		for(int i = 0; i < expected.length; ++i)
+			assertEquals(expected[i], b.dequeue());
+		assertTrue(b.isEmpty());
+		// values have to stay inside the window, which now starts at 45
+		b.add(0, 50);
+		try {
+			b.add(1, 44);
+			fail("Added a value below the window");
+		}
+		catch(IllegalArgumentException e) {}
+		try {
+			b.add(1, 91);
+			fail("Added a value above the window");
+		}
+		catch(IllegalArgumentException e) {}
+		
+		// dijkstra picks the bucket queue for small weights, and should agree
+		// with the comparison heap
+		java.util.Random rand = new java.util.Random(5);
+		for(int maxWeight : new int[] {1, 10, 1000}) {
+			ExpandableGraph rg = new ExpandableGraph();
+			for(int i = 0; i < 2000; ++i)
+				rg.addEdge(rand.nextInt(300), rand.nextInt(300), rand.nextInt(maxWeight) + 1, rand.nextBoolean());
+			assertTrue(rg.maxEdgeWeight() <= maxWeight);
+			int[] dists = GraphAlgs.dijkstra(rg, 0);
+			int[] slow = GraphAlgs.bellmanFord(rg, 0);
+			for(int i = 0; i < dists.length; ++i)
+				assertEquals(slow[i], dists[i]);
+		}
+		ExpandableGraph e = new ExpandableGraph();
+		assertEquals(0, e.maxEdgeWeight());
+		e.addEdge(0, 1, 7);
+		assertEquals(7, e.maxEdgeWeight());
+		e.changeEdge(0, 1, 3);
+		assertEquals(3, e.maxEdgeWeight());
+	}
+	
+	public void test_pairingHeap() {
+		int[] values = {10,5,13,7,25,15,20,45,30,2};
+		PairingHeap p = new PairingHeap(13);
+		for(int i = 0; i < values.length; ++i)
+			p.add(i, values[i]);
+		assertEquals(2, p.peekTopValue());
+		assertEquals(9, p.dequeue());
+		p.updateKey(8, 0);
+		p.updateKey(2, 1);
+		p.updateKey(3, 100); // keys can move down too
+		int[] expected = {8,2,1,0,5,6,4,7,3};
+		for(int i = 0; i < expected.length; ++i)
+			assertEquals(expected[i], p.dequeue());
+		assertTrue(p.isEmpty());
+		assertEquals(-1, p.dequeue());
+		
+		// a big random run against a sort, with plenty of updates in between
+		java.util.Random rand = new java.util.Random(13);
+		p = new PairingHeap(10000);
+		int[] vals = new int[10000];
+		for(int i = 0; i < vals.length; ++i) {
+			vals[i] = rand.nextInt(100000);
+			p.add(i, vals[i]);
+		}
+		for(int i = 0; i < 30000; ++i) {
+			int k = rand.nextInt(vals.length);
+			vals[k] = rand.nextBoolean() ? vals[k] - rand.nextInt(1000) : rand.nextInt(100000);
+			p.updateKey(k, vals[k]);
+		}
+		int[] sorted = vals.clone();
+		java.util.Arrays.sort(sorted);
+		for(int i = 0; i < sorted.length; ++i) {
+			assertEquals(sorted[i], p.peekTopValue());
+			assertEquals(sorted[i], vals[p.dequeue()]);
+		}
+		
+		// dense graphs get the pairing heap in dijkstra
+		ExpandableGraph dense = new ExpandableGraph();
+		for(int u = 0; u < 100; ++u)
+			for(int v = 0; v < 100; ++v)
+				if(u != v)
+					dense.addEdge(u, v, 5000 + rand.nextInt(5000), true);
+		int[] dists = GraphAlgs.dijkstra(dense, 0);
+		int[] slow = GraphAlgs.bellmanFord(dense, 0);
+		for(int i = 0; i < dists.length; ++i)
+			assertEquals(slow[i], dists[i]);
+	}
+	
+	public void test_expandableHeapGrowth() {
+		// start small, with sparse and negative keys, and grow well past it
+		ExpandableHeap e = new ExpandableHeap(2);
+		java.util.Random rand = new java.util.Random(17);
+		java.util.HashMap<Integer,Integer> vals = new java.util.HashMap<Integer,Integer>();
+		while(vals.size() < 5000) {
+			int key = rand.nextInt() / 2;
+			if(vals.containsKey(key))
+				continue;
+			int value = rand.nextInt(100000);
+			vals.put(key, value);
+			e.add(key, value);
+		}
+		assertEquals(5000, e.size());
+		for(int key : vals.keySet()) {
+			if(rand.nextInt(3) == 0) {
+				int value = rand.nextInt(100000);
+				vals.put(key, value);
+				e.updateKey(key, value);
+			}
+			assertEquals((int)vals.get(key), e.getValue(key));
+		}
+		int last = Integer.MIN_VALUE;
+		while(!e.isEmpty()) {
+			int value = e.peekTopValue();
+			int key = e.dequeue();
+			assertTrue(value >= last);
+			assertEquals((int)vals.remove(key), value);
+			last = value;
+		}
+		assertTrue(vals.isEmpty());
+		assertFalse(e.hasKey(0));
+	}
+	
+	public void test_heapStrategies() {
+		// every strategy has to find the same distances, on small and large weights
+		java.util.Random rand = new java.util.Random(23);
+		for(int maxWeight : new int[] {10, 100000}) {
+			ExpandableGraph rg = new ExpandableGraph();
+			for(int i = 0; i < 3000; ++i)
+				rg.addEdge(rand.nextInt(400), rand.nextInt(400), rand.nextInt(maxWeight) + 1, rand.nextBoolean());
+			int[] expected = GraphAlgs.bellmanFord(rg, 0);
+			for(HeapStrategy strategy : HeapStrategy.values()) {
+				int[] dists = GraphAlgs.shortestPath(rg, 0, true, strategy);
+				for(int i = 0; i < dists.length; ++i)
+					assertEquals(strategy.toString(), expected[i], dists[i]);
+			}
+		}
+		// and a factory of our own gets used
+		final int[] made = {0};
+		HeapFactory counting = new HeapFactory() {
+			public Heap newHeap(Graph g) {
+				made[0]++;
+				return new ExpandableHeap(g.numVertices());
+			}
+		};
+		int[] dists = GraphAlgs.dijkstra(g2, 7, true, counting);
+		int[] expected = {2,4,4,8,7,14,13,0};
+		for(int i = 0; i < dists.length; ++i)
+			assertEquals(expected[i], dists[i]);
+		assertEquals(1, made[0]);
+		// AUTO won't size buckets from weights that can grow mid-search
+		assertTrue(HeapStrategy.AUTO.newHeap(g2) instanceof BucketHeap);
+		ConcurrentGraph cg = new ConcurrentGraph(8);
+		cg.addEdge(0, 1, 3);
+		assertTrue(HeapStrategy.AUTO.newHeap(cg) instanceof DaryHeap);
+		
+		// the lazy heap keeps its old entries around, but they never come out
+		LazyHeap lazy = new LazyHeap(5);
+		lazy.add(0, 10);
+		lazy.add(1, 20);
+		lazy.updateKey(1, 5);
+		lazy.updateKey(0, 30);
+		lazy.updateKey(1, 15);
+		assertEquals(15, lazy.peekTopValue());
+		assertEquals(1, lazy.dequeue());
+		assertEquals(30, lazy.getValue(0));
+		assertEquals(0, lazy.dequeue());
+		assertTrue(lazy.isEmpty());
+		assertEquals(-1, lazy.dequeue());
+	}
+	
+	public void test_multiQueue() throws Exception {
+		// everything that goes in comes out exactly once, with several threads on
+		// each end
+		final MultiQueue q = new MultiQueue(8);
+		final int perThread = 20000;
+		final java.util.concurrent.atomic.AtomicIntegerArray seen = new java.util.concurrent.atomic.AtomicIntegerArray(4 * perThread);
+		Thread[] threads = new Thread[4];
+		for(int t = 0; t < threads.length; ++t) {
+			final int base = t * perThread;
+			threads[t] = new Thread() {
+				public void run() {
+					java.util.Random rand = new java.util.Random(base);
+					for(int i = 0; i < perThread; ++i) {
+						q.add(base + i, rand.nextInt(1000));
+						if(i % 2 == 1) {
+							long e = q.poll();
+							if(e != MultiQueue.EMPTY)
+								seen.incrementAndGet(MultiQueue.keyOf(e));
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for(Thread t : threads)
+			t.join();
+		for(long e = q.poll(); e != MultiQueue.EMPTY; e = q.poll())
+			seen.incrementAndGet(MultiQueue.keyOf(e));
+		assertTrue(q.isEmpty());
+		for(int i = 0; i < seen.length(); ++i)
+			assertEquals(1, seen.get(i));
+		// with one thread, the entries come out in roughly sorted order
+		MultiQueue single = new MultiQueue(2);
+		for(int i = 0; i < 1000; ++i)
+			single.add(i, 1000 - i);
+		long total = 0;
+		for(int i = 0; i < 100; ++i)
+			total += MultiQueue.valueOf(single.poll());
+		assertTrue(total < 100 * 200);
+		
+		// the parallel search finds the same distances as the sequential one
+		java.util.Random rand = new java.util.Random(29);
+		ExpandableGraph rg = new ExpandableGraph();
+		for(int i = 0; i < 20000; ++i)
+			rg.addEdge(rand.nextInt(3000), rand.nextInt(3000), rand.nextInt(1000) + 1, rand.nextBoolean());
+		CsrGraph csr = new CsrGraph(rg);
+		int[] expected = GraphAlgs.dijkstra(csr, 0);
+		for(int threadCount = 1; threadCount <= 4; threadCount *= 2) {
+			int[] dists = GraphAlgs.parallelDijkstra(csr, 0, threadCount);
+			for(int i = 0; i < expected.length; ++i)
+				assertEquals(expected[i], dists[i]);
+		}
+	}
+	
+	public void test_searchContext() {
+		// one context, reused across graphs of different sizes and many queries
+		SearchContext ctx = new SearchContext(4);
+		GraphAlgs.dijkstra(g2, 7, ctx);
+		int[] expected = {2,4,4,8,7,14,13,0};
+		for(int i = 0; i < expected.length; ++i)
+			assertEquals(expected[i], ctx.dist(i));
+		java.util.Random rand = new java.util.Random(31);
+		ExpandableGraph rg = new ExpandableGraph();
+		for(int i = 0; i < 4000; ++i)
+			rg.addEdge(rand.nextInt(1000), rand.nextInt(1000), rand.nextInt(50) + 1, rand.nextBoolean());
+		for(int q = 0; q < 50; ++q) {
+			int s = rand.nextInt(1000);
+			int t = rand.nextInt(1000);
+			int[] dists = GraphAlgs.dijkstra(rg, s);
+			assertEquals(dists[t], GraphAlgs.dijkstraSP(rg, s, t, ctx));
+			if(ctx.reached(t)) {
+				// the path has to add up to the distance
+				int[] path = ctx.pathTo(t);
+				assertEquals(s, path[0]);
+				assertEquals(t, path[path.length-1]);
+				int length = 0;
+				for(int i = 1; i < path.length; ++i)
+					length += rg.edgeWeight(path[i-1], path[i]);
+				assertEquals(dists[t], length);
+			}
+			else
+				assertNull(ctx.pathTo(t));
+			assertEquals(GraphAlgs.path(rg, s, t), GraphAlgs.path(rg, s, t, ctx));
+		}
+		// nothing is left over from a search on a bigger graph
+		GraphAlgs.dijkstra(g2, 0, ctx);
+		assertFalse(ctx.reached(500));
+		assertEquals(Integer.MAX_VALUE/2, ctx.dist(500));
+		assertTrue(GraphAlgs.path(g2, 0, 5, ctx));
+		assertEquals(0, ctx.pathTo(5)[0]);
+	}
+	
+	public void test_deltaStepping() {
+		int[] dists = GraphAlgs.deltaStepping(g2, 7, true);
+		int[] expected = {2,4,4,8,7,14,13,0};
+		for(int i = 0; i < expected.length; ++i)
+			assertEquals(expected[i], dists[i]);
+		java.util.Random rand = new java.util.Random(37);
+		ExpandableGraph rg = new ExpandableGraph();
+		for(int i = 0; i < 30000; ++i)
+			rg.addEdge(rand.nextInt(5000), rand.nextInt(5000), rand.nextInt(1000) + 1, rand.nextBoolean());
+		CsrGraph csr = new CsrGraph(rg);
+		expected = GraphAlgs.dijkstra(csr, 0);
+		java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+		for(int delta : new int[] {1, 50, DeltaStepping.defaultDelta(csr), 5000}) {
+			dists = GraphAlgs.deltaStepping(csr, 0, true, delta, pool);
+			int[] preds = GraphAlgs.deltaStepping(csr, 0, false, delta, pool);
+			for(int v = 0; v < expected.length; ++v) {
+				assertEquals(expected[v], dists[v]);
+				if(v == 0)
+					assertEquals(0, preds[v]);
+				else if(dists[v] == Integer.MAX_VALUE/2)
+					assertEquals(-1, preds[v]);
+				else {
+					// the smallest vertex that leads here on a shortest path
+					int best = -1;
+					for(int u = 0; u < expected.length && best < 0; ++u)
+						if(csr.edgeExists(u, v) && expected[u] + csr.edgeWeight(u, v) == expected[v])
+							best = u;
+					assertEquals(best, preds[v]);
+				}
+			}
+		}
+		// weights far bigger than delta, so the ring of buckets has to wrap around
+		ExpandableGraph heavy = new ExpandableGraph();
+		for(int i = 0; i < 3000; ++i)
+			heavy.addEdge(rand.nextInt(500), rand.nextInt(500), rand.nextInt(10000000) + 1, rand.nextBoolean());
+		csr = new CsrGraph(heavy);
+		expected = GraphAlgs.dijkstra(csr, 0);
+		dists = GraphAlgs.deltaStepping(csr, 0, true, 1, pool);
+		for(int v = 0; v < expected.length; ++v)
+			assertEquals(expected[v], dists[v]);
+		pool.shutdown();
+	}
+	
+	public void test_bidirectionalDijkstra() {
+		assertEquals(13, GraphAlgs.dijkstraSP(g2, 7, 6));
+		int[] path = GraphAlgs.dijkstraPath(g2, 7, 7);
+		assertEquals(1, path.length);
+		assertEquals(7, path[0]);
+		// weights of 0 included, to make sure paths don't loop
+		java.util.Random rand = new java.util.Random(41);
+		ExpandableGraph rg = new ExpandableGraph();
+		for(int i = 0; i < 3000; ++i)
+			rg.addEdge(rand.nextInt(1000), rand.nextInt(1000), rand.nextInt(10), rand.nextBoolean());
+		SearchContext ctx = new SearchContext();
+		for(int q = 0; q < 100; ++q) {
+			int s = rand.nextInt(1000);
+			int t = rand.nextInt(1000);
+			int[] dists = GraphAlgs.dijkstra(rg, s);
+			assertEquals(dists[t], GraphAlgs.dijkstraSP(rg, s, t));
+			path = GraphAlgs.dijkstraPath(rg, s, t, ctx);
+			if(dists[t] == Integer.MAX_VALUE/2) {
+				assertNull(path);
+				continue;
+			}
+			assertEquals(s, path[0]);
+			assertEquals(t, path[path.length-1]);
+			int length = 0;
+			for(int i = 1; i < path.length; ++i) {
+				assertTrue(rg.edgeExists(path[i-1], path[i]));
+				length += rg.edgeWeight(path[i-1], path[i]);
+			}
+			assertEquals(dists[t], length);
+		}
+		// the reverse graph is kept until the graph changes
+		Graph rev = rg.reverse();
+		assertSame(rev, rg.reverse());
+		rg.addEdge(0, 999, 1, true);
+		assertNotSame(rev, rg.reverse());
+		assertTrue(rg.reverse().edgeExists(999, 0));
+		// neighbours on a long line are found without walking the line
+		ExpandableGraph line = new ExpandableGraph();
+		for(int i = 0; i + 1 < 10000; ++i)
+			line.addEdge(i, i + 1, 1, true);
+		assertEquals(2, GraphAlgs.dijkstraSP(line, 5000, 5002, ctx));
+		assertFalse(ctx.reached(0));
+		assertFalse(ctx.reached(9999));
+	}
+	
+	public void test_bidirectionalWhileWriting() throws InterruptedException {
+		// a chain the writer keeps extending, with shortcuts that only ever help
+		final ConcurrentGraph cg = new ConcurrentGraph(1);
+		final int n = 20000;
+		for(int i = 0; i < 200; ++i)
+			cg.addEdge(i, i+1, 10);
+		Thread writer = new Thread() {
+			public void run() {
+				java.util.Random rand = new java.util.Random(59);
+				for(int i = 200; i < n; ++i) {
+					cg.addEdge(i, i+1, 10);
+					int u = rand.nextInt(i);
+					cg.addEdge(u, u + 1 + rand.nextInt(i + 1 - u), 15);
+				}
+			}
+		};
+		writer.start();
+		java.util.Random rand = new java.util.Random(61);
+		SearchContext ctx = new SearchContext();
+		do {
+			int s = rand.nextInt(100);
+			int t = 100 + rand.nextInt(100);
+			int d = GraphAlgs.dijkstraSP(cg, s, t, ctx);
+			assertTrue(d <= 10 * (t - s));
+			// the edges on the path were there, and stay there
+			int[] path = ctx.pathTo(t);
+			int total = 0;
+			for(int i = 0; i + 1 < path.length; ++i) {
+				assertTrue(cg.edgeExists(path[i], path[i+1]));
+				total += cg.edgeWeight(path[i], path[i+1]);
+			}
+			assertEquals(d, total);
+		} while(writer.isAlive());
+		writer.join();
+		assertEquals(GraphAlgs.dijkstra(cg, 3)[150], GraphAlgs.dijkstraSP(cg, 3, 150));
+	}
+	
+	public void test_aStar() {
+		assertEquals(13, GraphAlgs.aStar(g2, 7, 6, Heuristic.NONE));
+		// a 100x100 grid of two-way roads
+		java.util.Random rand = new java.util.Random(43);
+		int side = 100;
+		ExpandableGraph grid = new ExpandableGraph();
+		for(int r = 0; r < side; ++r) {
+			for(int c = 0; c < side; ++c) {
+				int v = r * side + c;
+				if(c + 1 < side)
+					grid.addEdge(v, v + 1, rand.nextInt(10) + 1);
+				if(r + 1 < side)
+					grid.addEdge(v, v + side, rand.nextInt(10) + 1);
+			}
+		}
+		grid.addEdge(side * side, 0, 1, true); // reaches the grid but can't be reached
+		CsrGraph g = new CsrGraph(grid);
+		Landmarks alt = new Landmarks(g, 8);
+		assertEquals(8, alt.landmarks().length);
+		SearchContext ctx = new SearchContext();
+		long altSettled = 0;
+		long bidiSettled = 0;
+		for(int q = 0; q < 30; ++q) {
+			int s = rand.nextInt(side * side);
+			int t = rand.nextInt(side * side);
+			int[] dists = GraphAlgs.dijkstra(g, s);
+			for(int v = 0; v < dists.length; v += 97)
+				assertTrue(alt.estimate(v, t) <= GraphAlgs.dijkstraSP(g, v, t));
+			assertEquals(dists[t], GraphAlgs.aStar(g, s, t, alt, ctx));
+			altSettled += ctx.settled();
+			if(dists[t] != Integer.MAX_VALUE/2) {
+				int[] path = ctx.pathTo(t);
+				int length = 0;
+				for(int i = 1; i < path.length; ++i)
+					length += g.edgeWeight(path[i-1], path[i]);
+				assertEquals(dists[t], length);
+			}
+			GraphAlgs.dijkstraSP(g, s, t, ctx);
+			bidiSettled += ctx.settled();
+		}
+		assertTrue(altSettled * 5 < bidiSettled);
+		// landmarks can also be chosen by hand
+		Landmarks corners = new Landmarks(g, new int[] {0, side * side - 1});
+		assertEquals(GraphAlgs.dijkstraSP(g, 5, 9000), GraphAlgs.aStar(g, 5, 9000, corners));
+		// and know when there's no path, without searching the whole graph
+		assertEquals(Integer.MAX_VALUE/2, GraphAlgs.aStar(g, 5, side * side, corners, ctx));
+		assertEquals(0, ctx.settled());
+	}
+	
+	public void test_contractionHierarchy() throws java.io.IOException {
+		java.util.Random rand = new java.util.Random(47);
+		// a grid of mostly two-way roads, and a sparse random directed graph
+		int side = 40;
+		ExpandableGraph grid = new ExpandableGraph();
+		for(int r = 0; r < side; ++r) {
+			for(int c = 0; c < side; ++c) {
+				int v = r * side + c;
+				if(c + 1 < side)
+					grid.addEdge(v, v + 1, rand.nextInt(10) + 1, rand.nextInt(20) != 0);
+				if(r + 1 < side)
+					grid.addEdge(v, v + side, rand.nextInt(10) + 1, rand.nextInt(20) != 0);
+			}
+		}
+		ExpandableGraph sparse = new ExpandableGraph();
+		for(int i = 0; i < 4000; ++i)
+			sparse.addEdge(rand.nextInt(1000), rand.nextInt(1000), rand.nextInt(100), true);
+		for(Graph g : new Graph[] {grid, sparse, g2}) {
+			ContractionHierarchy ch = new ContractionHierarchy(g, 4);
+			java.io.File file = java.io.File.createTempFile("hierarchy", ".bin");
+			try {
+				ch.save(file);
+				ContractionHierarchy loaded = ContractionHierarchy.load(file);
+				assertEquals(ch.numShortcuts(), loaded.numShortcuts());
+				ContractionHierarchy.Query[] queries = {ch.newQuery(), loaded.newQuery()};
+				int n = g.numVertices();
+				for(int q = 0; q < 100; ++q) {
+					int s = rand.nextInt(n);
+					int t = rand.nextInt(n);
+					int[] dists = GraphAlgs.dijkstra(g, s);
+					for(ContractionHierarchy.Query query : queries) {
+						assertEquals(dists[t], query.distance(s, t));
+						int[] path = query.path(s, t);
+						if(dists[t] == Integer.MAX_VALUE/2) {
+							assertNull(path);
+							assertNull(GraphAlgs.findPath(g, s, t));
+							continue;
+						}
+						assertEquals(s, path[0]);
+						assertEquals(t, path[path.length-1]);
+						int length = 0;
+						for(int i = 1; i < path.length; ++i) {
+							assertTrue(g.edgeExists(path[i-1], path[i]));
+							length += g.edgeWeight(path[i-1], path[i]);
+						}
+						assertEquals(dists[t], length);
+					}
+				}
+				assertEquals(1, ch.path(3, 3).length);
+			}
+			finally {
+				file.delete();
+			}
+		}
+		// and a file that isn't a hierarchy is rejected
+		java.io.File junk = java.io.File.createTempFile("hierarchy", ".bin");
+		try {
+			java.io.FileOutputStream out = new java.io.FileOutputStream(junk);
+			out.write(new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+			out.close();
+			ContractionHierarchy.load(junk);
+			fail("Loaded a file that isn't a hierarchy");
+		}
+		catch(java.io.IOException e) {
+		}
+		finally {
+			junk.delete();
+		}
+	}
+	
+	public void test_dijkstraPrev() {
+		int[] prev = GraphAlgs.dijkstra(g2, 7, false);
+		int[] dists = GraphAlgs.dijkstra(g2, 7, true);
+		assertEquals(7, prev[7]);
+		for(int v = 0; v < prev.length; ++v) {
+			if(v != 7)
+				assertEquals(dists[v], dists[prev[v]] + g2.edgeWeight(prev[v], v));
+		}
+		// the predecessors match deltaStepping's, with every heap
+		java.util.Random rand = new java.util.Random(53);
+		ExpandableGraph rg = new ExpandableGraph();
+		for(int i = 0; i < 20000; ++i)
+			rg.addEdge(rand.nextInt(3000), rand.nextInt(3000), rand.nextInt(20) + 1, rand.nextBoolean());
+		CsrGraph csr = new CsrGraph(rg);
+		int[] expected = GraphAlgs.deltaStepping(csr, 0, false);
+		for(HeapStrategy heap : HeapStrategy.values())
+			assertTrue(java.util.Arrays.equals(expected, GraphAlgs.dijkstra(csr, 0, false, heap)));
+		// stopping at a sink still gets the sink right
+		dists = GraphAlgs.dijkstra(csr, 0);
+		for(int t = 0; t < 3000; t += 101) {
+			int[] early = GraphAlgs.dijkstra(csr, 0, t, true, HeapStrategy.AUTO);
+			assertEquals(dists[t], early[t]);
+			int[] path = GraphAlgs.findPath(csr, 0, t);
+			if(dists[t] == Integer.MAX_VALUE/2)
+				assertNull(path);
+			else {
+				int length = 0;
+				for(int i = 1; i < path.length; ++i)
+					length += csr.edgeWeight(path[i-1], path[i]);
+				assertEquals(dists[t], length);
+			}
+		}
+		assertEquals(1, GraphAlgs.findPath(csr, 5, 5).length);
+	}
+	
+	public void test_flowNetwork() {
+		FlowNetwork net = GraphAlgs.maxFlowNetwork(g6, 0, 5);
+		assertEquals(5, net.value());
+		assertEquals(5, new FlowNetwork(g6).pushRelabel(0, 5));
+		assertEquals(15, new FlowNetwork(g7).pushRelabel(0, 3));
+		java.util.Random rand = new java.util.Random(43);
+		for(int trial = 0; trial < 20; ++trial) {
+			int n = 10 + rand.nextInt(60);
+			ExpandableGraph rg = new ExpandableGraph(n);
+			for(int i = 0; i < 6 * n; ++i)
+				rg.addEdge(rand.nextInt(n), rand.nextInt(n), rand.nextInt(100), true);
+			int s = rand.nextInt(n);
+			int t = (s + 1 + rand.nextInt(n - 1)) % n;
+			int expected = GraphAlgs.maxFlow(rg, s, t, false);
+			net = new FlowNetwork(rg);
+			for(int run = 0; run < 2; ++run) {
+				assertEquals(expected, run == 0 ? net.dinic(s, t) : net.pushRelabel(s, t));
+				// capacities respected, and flow conserved everywhere but the ends
+				long[] out = new long[n];
+				EdgeArrays flows = net.flows();
+				for(int i = 0; i < flows.size(); ++i) {
+					assertTrue(flows.weight[i] > 0);
+					assertTrue(flows.weight[i] <= rg.edgeWeight(flows.u[i], flows.v[i]));
+					assertEquals(flows.weight[i], net.flow(flows.u[i], flows.v[i]));
+					out[flows.u[i]] += flows.weight[i];
+					out[flows.v[i]] -= flows.weight[i];
+				}
+				for(int v = 0; v < n; ++v) {
+					if(v == s)
+						assertEquals(expected, out[v]);
+					else if(v == t)
+						assertEquals(-expected, out[v]);
+					else
+						assertEquals(0, out[v]);
+				}
+				// the cut separates the ends, and its full edges add up to the flow
+				boolean[] side = net.minCut();
+				assertTrue(side[s]);
+				assertFalse(side[t]);
+				EdgeArrays cut = net.cutEdges();
+				long total = 0;
+				for(int i = 0; i < cut.size(); ++i) {
+					assertTrue(side[cut.u[i]] && !side[cut.v[i]]);
+					assertEquals(cut.weight[i], net.flow(cut.u[i], cut.v[i]));
+					total += cut.weight[i];
+				}
+				assertEquals(expected, total);
+			}
+		}
+		try {
+			new FlowNetwork(g6).dinic(2, 2);
+			fail();
+		}
+		catch(IllegalArgumentException e) {}
+		try {
+			new FlowNetwork(g6).flows();
+			fail();
+		}
+		catch(IllegalStateException e) {}
+	}
+	
+	public void test_disjointSet() {
+		DisjointSet sets = new DisjointSet(6);
+		assertEquals(6, sets.numSets());
+		assertTrue(sets.union(0, 1));
+		assertTrue(sets.union(2, 3));
+		assertTrue(sets.union(1, 3));
+		assertFalse(sets.union(0, 2));
+		assertTrue(sets.connected(0, 3));
+		assertFalse(sets.connected(0, 4));
+		assertEquals(sets.find(2), sets.find(1));
+		assertEquals(3, sets.numSets());
+	}
+	
+	public void test_parallelMst() {
+		EdgeArrays tree = GraphAlgs.parallelMinSpanningEdges(g2, 3);
+		assertEquals(GraphAlgs.minSpanningTree(g2), GraphAlgs.spanningGraph(8, tree));
+		java.util.Random rand = new java.util.Random(47);
+		for(int trial = 0; trial < 10; ++trial) {
+			// two pieces, so it's a forest, with lots of tied and negative weights
+			int n = 50 + rand.nextInt(150);
+			ExpandableGraph rg = new ExpandableGraph();
+			for(int i = 0; i < 5 * n; ++i) {
+				int u = rand.nextInt(n);
+				int v = rand.nextInt(n);
+				if(u < n/2 == v < n/2)
+					rg.addEdge(u, v, rand.nextInt(20) - 5, false);
+			}
+			n = rg.numVertices();
+			EdgeArrays kruskal = GraphAlgs.minSpanningEdges(rg);
+			for(int threads = 1; threads <= 4; threads *= 2) {
+				EdgeArrays boruvka = GraphAlgs.parallelMinSpanningEdges(rg, threads);
+				assertTrue(java.util.Arrays.equals(kruskal.u, boruvka.u));
+				assertTrue(java.util.Arrays.equals(kruskal.v, boruvka.v));
+				assertTrue(java.util.Arrays.equals(kruskal.weight, boruvka.weight));
+			}
+			// Prim's algorithm on each piece, the slow way, should agree on the weight
+			long expected = 0;
+			int pieces = 0;
+			boolean[] in = new boolean[n];
+			for(int root = 0; root < n; ++root) {
+				if(in[root])
+					continue;
+				pieces++;
+				in[root] = true;
+				while(true) {
+					int best = Integer.MAX_VALUE;
+					int next = -1;
+					for(int u = 0; u < n; ++u)
+						for(int v = 0; v < n; ++v)
+							if(in[u] && !in[v] && rg.edgeExists(u, v) && rg.edgeWeight(u, v) < best) {
+								best = rg.edgeWeight(u, v);
+								next = v;
+							}
+					if(next < 0)
+						break;
+					in[next] = true;
+					expected += best;
+				}
+			}
+			long total = 0;
+			for(int i = 0; i < kruskal.size(); ++i)
+				total += kruskal.weight[i];
+			assertEquals(expected, total);
+			assertEquals(n - pieces, kruskal.size());
+		}
+	}
 }
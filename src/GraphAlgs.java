@@ -1,8 +1,15 @@
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.Map;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 // TODO: Abstract away the process of getting the list of edges
 // TODO: add more tests
@@ -11,14 +18,23 @@ public class GraphAlgs {
 	 * Uses Dijkstra's algorithm to find the shortest paths from a particular
 	 * vertex to all other vertices.  Can return either an array of the shortest
 	 * path values, or an array that can be used to reconstruct the path in the
-	 * original graph.  It keeps track of the vertices to be explored using a heap
-	 * as its priority queue.  
+	 * original graph: each vertex's predecessor on its shortest path, with the
+	 * source as its own predecessor and -1 for vertices that can't be reached.
+	 * Where several shortest paths lead to a vertex, the predecessor is the
+	 * smallest-numbered one, the same as deltaStepping picks (as long as there are
+	 * no edges of weight 0, whose ties are left to whichever comes first).  It keeps
+	 * track of the vertices to be explored using a heap as its priority queue.
 	 *  
 	 * g: The graph on which to compute the shortest paths.
 	 * source: The index of the source vertex from which to compute paths.
+	 * sink: A vertex to stop at as soon as its distance is known, or -1 to find
+	 * 		them all.  After stopping early, other vertices may be left with
+	 * 		distances and predecessors that aren't their shortest.
 	 * dists: A flag determining whether to return the distances or the path reconstruction.
+	 * heaps: Makes the priority queue; either one of the HeapStrategy values, or
+	 * 		your own.
 	 */
-	public static int[] dijkstra(Graph g, int source, boolean dists) {
+	public static int[] dijkstra(Graph g, int source, int sink, boolean dists, HeapFactory heaps) {
 		if(g.hasNegativeEdges())
 			throw new IllegalArgumentException("Dijkstra's algorithm doesn't work with negative edge weights!");
 		int numVerts = g.numVertices();
@@ -26,47 +42,37 @@ public class GraphAlgs {
 		int[] prev = new int[numVerts];
 		boolean[] visited = new boolean[numVerts];
 		// initialize the dists and prev arrays
-		for(int i = 0; i < dist.length; ++i) {
-			visited[i] = false;
-			prev[i] = -1;
-			if(i == source) {
-				dist[i] = 0;
-				prev[i] = source;
-			}
-			else
-				dist[i] = Integer.MAX_VALUE/2;
-		}
-		Heap h = new FixedHeap(numVerts);
+		Arrays.fill(dist, Integer.MAX_VALUE/2);
+		Arrays.fill(prev, -1);
+		dist[source] = 0;
+		prev[source] = source;
+		Heap h = heaps.newHeap(g);
+		NeighborCursor edges = g.cursor();
 		h.add(source, 0);
 		while(!h.isEmpty()) {
-			int current;
-			int val;
 			// Get the next closest vertex to the source from our heap
-			try {
-				val = h.peekTopValue();
-				current = h.dequeue();
-			}
-			catch(Exception e) {
-				System.out.println("Done!  Too early!");
+			int val = h.peekTopValue();
+			int current = h.dequeue();
+			visited[current] = true;
+			if(current == sink)
 				break;
-			}
-			// This check should always pass, but just in case.
-			if(!visited[current]) {
-				dist[current] = val;
-				Map<Integer, Integer>[] edgeSet = g.getAdjList();
-				Map<Integer, Integer> edges = edgeSet[current];
-				// check all edges adjacent to that vertex, updating distances if necessary
-				for(int e : edges.keySet()) {
-					if(!visited[e]) {
-						if(h.hasKey(e) && !visited[e] && (h.getValue(e) > (val + edges.get(e)))) {
-							h.updateKey(e, val + edges.get(e));
-						}
-						else if(!h.hasKey(e) && !visited[e]) {
-							h.add(e, dist[current] + edges.get(e));
-						}
-					}
+			// check all edges adjacent to that vertex, updating distances if necessary
+			edges.reset(current);
+			for(int e = edges.nextTarget(); e >= 0; e = edges.nextTarget()) {
+				if(visited[e])
+					continue;
+				int weight = edges.weight();
+				int d = val + weight;
+				if(d < dist[e]) {
+					if(h.hasKey(e))
+						h.updateKey(e, d);
+					else
+						h.add(e, d);
+					dist[e] = d;
+					prev[e] = current;
 				}
-				visited[current] = true;
+				else if(d == dist[e] && weight > 0 && current < prev[e])
+					prev[e] = current;
 			}
 		}
 		// return the right value
@@ -76,6 +82,21 @@ public class GraphAlgs {
 			return prev;
 	}
 	
+	/*
+	 * Same as above, but finds the paths to every vertex.
+	 */
+	public static int[] dijkstra(Graph g, int source, boolean dists, HeapFactory heaps) {
+		return dijkstra(g, source, -1, dists, heaps);
+	}
+	
+	
+	/*
+	 * Same as above, but lets the heap be chosen automatically (see HeapStrategy.AUTO).
+	 */
+	public static int[] dijkstra(Graph g, int source, boolean dists) {
+		return dijkstra(g, source, dists, HeapStrategy.AUTO);
+	}
+	
 	/*
 	 * Same as above, but returns the distances array by default.
 	 */
@@ -83,6 +104,164 @@ public class GraphAlgs {
 		return dijkstra(g, source, true);
 	}
 	
+	/*
+	 * Finds the same shortest paths as dijkstra with delta-stepping, which relaxes
+	 * edges on many threads at once (see DeltaStepping).  The predecessors are
+	 * deterministic: each vertex's is the smallest numbered vertex it can be
+	 * reached from on a shortest path, so they match dijkstra's.
+	 * 
+	 * g: The graph on which to compute the shortest paths.
+	 * source: The index of the source vertex from which to compute paths.
+	 * dists: A flag determining whether to return the distances or the predecessors.
+	 * delta: The width of the distance buckets.  Smaller means less wasted work,
+	 * 		larger means more to do in parallel at each step.
+	 * pool: The pool to run on.
+	 */
+	public static int[] deltaStepping(Graph g, int source, boolean dists, int delta, ForkJoinPool pool) {
+		DeltaStepping search = new DeltaStepping(g, delta, pool);
+		search.run(source);
+		return dists ? search.dists() : search.preds();
+	}
+	
+	/*
+	 * Same as above, with a delta picked from the graph (see
+	 * DeltaStepping.defaultDelta), on the common pool.
+	 */
+	public static int[] deltaStepping(Graph g, int source, boolean dists) {
+		return deltaStepping(g, source, dists, DeltaStepping.defaultDelta(g), ForkJoinPool.commonPool());
+	}
+	
+	/*
+	 * Runs Dijkstra's algorithm from source using the reusable state in ctx, and
+	 * leaves the results there (see SearchContext.dist and prev).  Nothing of size
+	 * V is allocated or cleared, so a search that only reaches a few vertices only
+	 * costs as much as those vertices.
+	 * 
+	 * g: The graph on which to compute the shortest paths.
+	 * source: The index of the source vertex from which to compute paths.
+	 * ctx: Where to keep the search's state and results.
+	 */
+	public static void dijkstra(Graph g, int source, SearchContext ctx) {
+		if(g.hasNegativeEdges())
+			throw new IllegalArgumentException("Dijkstra's algorithm doesn't work with negative edge weights!");
+		ctx.start(g);
+		DaryHeap h = ctx.heap();
+		NeighborCursor edges = ctx.cursor();
+		ctx.reach(source, 0, source);
+		h.add(source, 0);
+		while(!h.isEmpty()) {
+			int val = h.peekTopValue();
+			int current = h.dequeue();
+			ctx.finish(current);
+			edges.reset(current);
+			for(int v = edges.nextTarget(); v >= 0; v = edges.nextTarget()) {
+				if(ctx.isDone(v))
+					continue;
+				int d = val + edges.weight();
+				if(d < ctx.dist(v)) {
+					ctx.reach(v, d, current);
+					if(h.hasKey(v))
+						h.updateKey(v, d);
+					else
+						h.add(v, d);
+				}
+			}
+		}
+	}
+	
+	/*
+	 * Finds the same distances as dijkstra using several threads, which share a
+	 * MultiQueue instead of a heap.  Since the queue only roughly hands out the
+	 * closest vertex, a vertex can be expanded before its distance is final, and
+	 * then again when a shorter path turns up; distances only ever go down, by
+	 * compare-and-set, so they all end up right.  The search is over when the
+	 * queue is empty and nobody is still expanding a vertex, which we track with a
+	 * count of the entries that have been added but not finished with.  The graph
+	 * must not be modified while this runs.
+	 * 
+	 * g: The graph on which to compute the shortest paths.
+	 * source: The index of the source vertex from which to compute paths.
+	 * threads: How many threads to search with.
+	 */
+	public static int[] parallelDijkstra(final Graph g, int source, int threads) {
+		if(g.hasNegativeEdges())
+			throw new IllegalArgumentException("Dijkstra's algorithm doesn't work with negative edge weights!");
+		if(threads < 1)
+			throw new IllegalArgumentException("Need at least one thread to search with");
+		int numVerts = g.numVertices();
+		final AtomicIntegerArray dist = new AtomicIntegerArray(numVerts);
+		for(int i = 0; i < numVerts; ++i)
+			dist.set(i, i == source ? 0 : Integer.MAX_VALUE/2);
+		final MultiQueue queue = new MultiQueue(Math.max(2, 4 * threads));
+		final AtomicInteger pending = new AtomicInteger(1);
+		final AtomicBoolean failed = new AtomicBoolean(false);
+		queue.add(source, 0);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for(int t = 0; t < threads; ++t) {
+				futures.add(pool.submit(new Callable<Void>() {
+					public Void call() {
+						NeighborCursor edges = g.cursor();
+						try {
+							while(!failed.get()) {
+								long entry = queue.poll();
+								if(entry == MultiQueue.EMPTY) {
+									if(pending.get() == 0)
+										return null;
+									Thread.yield();
+									continue;
+								}
+								int u = MultiQueue.keyOf(entry);
+								int d = MultiQueue.valueOf(entry);
+								// skip entries that a shorter path has already replaced
+								if(d <= dist.get(u)) {
+									edges.reset(u);
+									for(int v = edges.nextTarget(); v >= 0; v = edges.nextTarget()) {
+										int nd = d + edges.weight();
+										int old = dist.get(v);
+										while(nd < old) {
+											if(dist.compareAndSet(v, old, nd)) {
+												pending.incrementAndGet();
+												queue.add(v, nd);
+												break;
+											}
+											old = dist.get(v);
+										}
+									}
+								}
+								pending.decrementAndGet();
+							}
+							return null;
+						}
+						catch(RuntimeException e) {
+							failed.set(true); // or the others would wait forever
+							throw e;
+						}
+					}
+				}));
+			}
+			for(Future<Void> f : futures)
+				f.get();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while searching", e);
+		}
+		catch(ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException)e.getCause();
+			throw new IllegalStateException("Search failed", e.getCause());
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		int[] ret = new int[numVerts];
+		for(int i = 0; i < numVerts; ++i)
+			ret[i] = dist.get(i);
+		return ret;
+	}
+	
 	
 	/*
 	 * Uses Dijkstra's algorithm to find the shortest paths from a particular
@@ -114,6 +293,7 @@ public class GraphAlgs {
 			else
 				dist[i] = Integer.MAX_VALUE;
 		}
+		NeighborCursor edges = g.cursor();
 		while(true) {
 			int current = -1;
 			int min =  Integer.MAX_VALUE;
@@ -127,13 +307,12 @@ public class GraphAlgs {
 			// if we didn't find one, we've found every vertex reachable from the source
 			if(current == -1)
 				break;
-			Map<Integer, Integer>[] edgeSet = g.getAdjList();
-			Map<Integer, Integer> edges = edgeSet[current];
 			// check all edges adjacent to that vertex, updating distances if necessary
-			for(int e : edges.keySet()) {
+			edges.reset(current);
+			for(int e = edges.nextTarget(); e >= 0; e = edges.nextTarget()) {
 				if(!visited[e]) {
-					if(dist[e] > (dist[current] + edges.get(e))) {
-						dist[e] = dist[current] + edges.get(e);
+					if(dist[e] > (dist[current] + edges.weight())) {
+						dist[e] = dist[current] + edges.weight();
 						prev[e] = current;
 					}
 				}
@@ -164,20 +343,57 @@ public class GraphAlgs {
 	 * sink: The sink, or ending vertex.
 	 */
 	public static boolean path(Graph g, int source, int sink) {
-		Queue<Integer> q = new LinkedList<Integer>();
-		q.add(source);
-		Map<Integer, Integer>[] edges = g.getAdjList();
+		// Each vertex is queued at most once, so a plain array makes a fine queue
+		int[] q = new int[g.numVertices()];
+		int head = 0;
+		int tail = 0;
+		q[tail++] = source;
+		NeighborCursor edges = g.cursor();
 		boolean[] visited = new boolean[g.numVertices()];
-		while(!q.isEmpty()) {
-			int current = q.poll();
-			Map<Integer,Integer> e = edges[current];
-			for(int vert : e.keySet()) {
+		visited[source] = true;
+		while(head < tail) {
+			int current = q[head++];
+			edges.reset(current);
+			for(int vert = edges.nextTarget(); vert >= 0; vert = edges.nextTarget()) {
 				if(vert == sink)
 					return true;
-				if(!visited[vert])
-					q.add(vert);
+				if(!visited[vert]) {
+					visited[vert] = true;
+					q[tail++] = vert;
+				}
+			}
+		}
+		return false;
+	}
+	
+	/*
+	 * Same as above, but does its bookkeeping in ctx instead of allocating it, so
+	 * it only costs as much as the part of the graph it looks at.  Afterwards,
+	 * ctx.pathTo(sink) gives the path it found, with the fewest edges.
+	 */
+	public static boolean path(Graph g, int source, int sink, SearchContext ctx) {
+		ctx.start(g);
+		int[] q = ctx.queue();
+		int head = 0;
+		int tail = 0;
+		q[tail++] = source;
+		NeighborCursor edges = ctx.cursor();
+		ctx.reach(source, 0, source);
+		while(head < tail) {
+			int current = q[head++];
+			int d = ctx.dist(current) + 1;
+			edges.reset(current);
+			for(int vert = edges.nextTarget(); vert >= 0; vert = edges.nextTarget()) {
+				if(vert == sink) {
+					if(!ctx.reached(sink))
+						ctx.reach(sink, d, current);
+					return true;
+				}
+				if(!ctx.reached(vert)) {
+					ctx.reach(vert, d, current);
+					q[tail++] = vert;
+				}
 			}
-			visited[current] = true;
 		}
 		return false;
 	}
@@ -209,20 +425,16 @@ public class GraphAlgs {
 	 * sink: The ending vertex.
 	 */
 	public static int[] findPath(Graph g, int source, int sink) {
-		ArrayList<Integer> path = new ArrayList<Integer>();
-		int[] prev = slowDijkstra(g,source,false);
-		int current = sink;
-		path.add(sink);
-		while(current != source) {
-			current = prev[current];
-			path.add(current);
-			if(current == -1) // if there's not actually a path
-				return null;
-		}
-		Collections.reverse(path);
-		int[] ret = new int[path.size()];
-		for(int i = 0; i < path.size(); ++i)
-			ret[i] = path.get(i);
+		// the search can stop as soon as it gets to sink
+		int[] prev = dijkstra(g, source, sink, false, HeapStrategy.AUTO);
+		if(prev[sink] == -1) // if there's not actually a path
+			return null;
+		int length = 1;
+		for(int current = sink; current != source; current = prev[current])
+			length++;
+		int[] ret = new int[length];
+		for(int current = sink; length > 0; current = prev[current])
+			ret[--length] = current;
 		return ret;
 	}
 	
@@ -234,17 +446,16 @@ public class GraphAlgs {
 	 */
 	public static boolean isTree(Graph g) {
 		// step one: count the edges
-		Map<Integer, Integer>[] edges = g.getAdjList();
 		int count = 0;
-		for(int i = 0; i < edges.length; ++i) {
-			count += edges[i].keySet().size();
+		for(int i = 0; i < g.numVertices(); ++i) {
+			count += g.degree(i);
 			if(count > 2*g.numVertices()) // shortcut early if it's clearly not
 				return false;
 		}
 		if(count != 2*g.numVertices() - 2)
 			return false;
 		// step two: make sure there's a path from 0 to all the others
-		int[] prevs = slowDijkstra(g,0,false);
+		int[] prevs = dijkstra(g,0,false);
 		for(int i = 0; i < prevs.length; ++i)
 			if(prevs[i] < 0)
 				return false;
@@ -255,31 +466,77 @@ public class GraphAlgs {
 	 * Returns a new graph that represents the minimum spanning tree of the input
 	 * graph.  Does so using Kruskal's algorithm.  Assumes that the input graph
 	 * is undirected, since this problem becomes much...stranger on a directed
-	 * graph.
+	 * graph.  The tree comes back as an undirected CsrGraph, which takes O(V)
+	 * memory, where a FixedGraph would take O(V^2).
 	 * 
 	 * g: See above.
 	 */
 	public static Graph minSpanningTree(Graph g) {
-		Graph mst = new FixedGraph(g.numVertices());
-		// Get a list of all of the edges, to ease computation
-		ArrayList<Edge> allEdges = g.getEdgeList();
-		// Now, add edges in increasing order of weight, but only if they don't
-		// form a cycle in the graph being constructed.
-		Collections.sort(allEdges);
+		return spanningGraph(g.numVertices(), minSpanningEdges(g));
+	}
+
+	/*
+	 * The edges of the minimum spanning tree (or forest, if g isn't connected),
+	 * each once, in increasing order of weight.  Kruskal's algorithm: go through
+	 * the edges in order, keeping each one that joins two different components
+	 * of what's been kept so far, which a DisjointSet answers in nearly constant
+	 * time.  Sorting the edges is most of the work, and that uses every core.
+	 * 
+	 * g: See above.
+	 */
+	public static EdgeArrays minSpanningEdges(Graph g) {
+		int n = g.numVertices();
+		EdgeArrays allEdges = g.edgeArrays();
+		allEdges.sortByWeight();
+		DisjointSet sets = new DisjointSet(n);
+		int target = Math.max(n - 1, 0);
+		int[] us = new int[target];
+		int[] vs = new int[target];
+		int[] ws = new int[target];
 		int count = 0;
-		int target = g.numVertices() - 1;
-		for(Edge e : allEdges) {
-			int u = e.u;
-			int v = e.v;
-			int weight = e.weight;
-			if(!path(mst,u,v)) { // only add this edge if you can't reach u from v
-				mst.addEdge(u, v, weight);
+		for(int e = 0; e < allEdges.size() && count < target; ++e) {
+			int u = allEdges.u[e];
+			int v = allEdges.v[e];
+			if(sets.union(u, v)) {
+				us[count] = u;
+				vs[count] = v;
+				ws[count] = allEdges.weight[e];
 				++count;
 			}
-			if(count == target) // if it's already a tree, we're done
-				break;
 		}
-		return mst;
+		if(count < target)
+			return new EdgeArrays(Arrays.copyOf(us, count), Arrays.copyOf(vs, count), Arrays.copyOf(ws, count));
+		return new EdgeArrays(us, vs, ws);
+	}
+
+	/*
+	 * The same edges as minSpanningEdges, in the same order, found by Boruvka's
+	 * algorithm on several threads instead.  It never sorts the edges, but scans
+	 * what's left of them once a round, so on one or two cores Kruskal is faster;
+	 * it pays off when there are more cores to scan with.
+	 * 
+	 * g: See above.
+	 * threads: How many threads to use.
+	 */
+	public static EdgeArrays parallelMinSpanningEdges(Graph g, int threads) {
+		return new Boruvka(g, threads).run();
+	}
+
+	/*
+	 * Makes an undirected CsrGraph on n vertices out of a list of edges.
+	 */
+	public static Graph spanningGraph(int n, EdgeArrays tree) {
+		int m = tree.size();
+		int[] us = new int[2 * m];
+		int[] vs = new int[2 * m];
+		int[] ws = new int[2 * m];
+		System.arraycopy(tree.u, 0, us, 0, m);
+		System.arraycopy(tree.v, 0, us, m, m);
+		System.arraycopy(tree.v, 0, vs, 0, m);
+		System.arraycopy(tree.u, 0, vs, m, m);
+		System.arraycopy(tree.weight, 0, ws, 0, m);
+		System.arraycopy(tree.weight, 0, ws, m, m);
+		return new CsrGraph(n, us, vs, ws, 2 * m);
 	}
 	
 	/*
@@ -332,11 +589,24 @@ public class GraphAlgs {
 	}
 	
 	/*
-	 * A simpler version of the max flow function that disables debug statements.
+	 * Finds the value of the max flow from source to sink with Dinic's algorithm
+	 * on a FlowNetwork, which takes O(V+E) memory and doesn't slow down as the
+	 * capacities grow, unlike the Ford-Fulkerson version above.  Use
+	 * maxFlowNetwork to get the flow itself and a minimum cut as well.
 	 * All variables are the same as above.
 	 */
 	public static int maxFlow(Graph g, int source, int sink) {
-		return maxFlow(g,source,sink,false);
+		return Math.toIntExact(maxFlowNetwork(g, source, sink).value());
+	}
+
+	/*
+	 * Finds a max flow from source to sink, and returns the network it's in, to
+	 * read the flow along each edge and a minimum cut from.
+	 */
+	public static FlowNetwork maxFlowNetwork(Graph g, int source, int sink) {
+		FlowNetwork net = new FlowNetwork(g);
+		net.dinic(source, sink);
+		return net;
 	}
 	
 	/*
@@ -347,25 +617,36 @@ public class GraphAlgs {
 	 */
 	public static int[][] allPairsSP(Graph g) {
 		int n = g.numVertices();
-		// initializing the array
+		// initializing the array, filling in the edges by walking each row once
 		float[][] path = new float[n][n];
+		NeighborCursor edges = g.cursor();
 		for(int i = 0; i < n; ++i) {
 			for(int j = 0; j < n; ++j) {
-				if(g.edgeWeight(i, j) != 0)
-					path[i][j] = g.edgeWeight(i, j);
-				else if(i != j)
+				if(i != j)
 					path[i][j] = Float.POSITIVE_INFINITY;
 				else
 					path[i][j] = 0;
 			}
+			edges.reset(i);
+			for(int j = edges.nextTarget(); j >= 0; j = edges.nextTarget()) {
+				if(edges.weight() != 0)
+					path[i][j] = edges.weight();
+			}
 		}
 		// running the algorithm
 		// TODO: one negative edge weight graphs, our inability to actually use infinity
 		//	causes issues; we'll get slightly lower, but shouldn't
 		for(int k = 0; k < n; ++k) {
-			for(int j = 0; j < n; ++j) {
-				for(int i = 0; i < n; ++i) {
-					path[i][j] = Math.min(path[i][j], path[i][k] + path[k][j]);
+			// row k doesn't change during pass k (path[k][k] stays 0), so the inner
+			// loop can run along rows instead of down columns
+			float[] rowK = path[k];
+			for(int i = 0; i < n; ++i) {
+				float[] rowI = path[i];
+				float ik = rowI[k];
+				if(ik == Float.POSITIVE_INFINITY)
+					continue;
+				for(int j = 0; j < n; ++j) {
+					rowI[j] = Math.min(rowI[j], ik + rowK[j]);
 				}
 			}
 		}
@@ -382,16 +663,189 @@ public class GraphAlgs {
 	
 	/*
 	 * A shorthand for finding the shortest path between two vertices using Dijkstra's algorithm.
-	 * It just calls the algorithm that computes all shortest paths, and extracts the one value
-	 * we want.
+	 * Rather than finding the distance to every vertex, it searches forwards from source and
+	 * backwards from sink at the same time (see bidirectionalSearch), so it only looks at the
+	 * vertices that are closer to one end or the other than the two ends are to each other.
 	 * 
 	 * g: Same as always.
 	 * source: The starting vertex for the path.
 	 * sink: The ending vertex for the path.
 	 */
 	public static int dijkstraSP(Graph g, int source, int sink) {
-		int[] dists = dijkstra(g, source, true);
-		return dists[sink];
+		return dijkstraSP(g, source, sink, new SearchContext(g.numVertices()));
+	}
+	
+	/*
+	 * Same as above, but using the reusable state in ctx, so that a query that only
+	 * looks at a few vertices only costs as much as those vertices, however big the
+	 * graph is.  Afterwards, ctx.pathTo(sink) gives the path itself.
+	 */
+	public static int dijkstraSP(Graph g, int source, int sink, SearchContext ctx) {
+		bidirectionalSearch(g, source, sink, ctx);
+		return ctx.dist(sink);
+	}
+	
+	/*
+	 * Finds the shortest path from source to sink the same way as dijkstraSP, and
+	 * returns it as an array that starts with source and ends with sink, or null
+	 * if there isn't one.
+	 */
+	public static int[] dijkstraPath(Graph g, int source, int sink) {
+		return dijkstraPath(g, source, sink, new SearchContext(g.numVertices()));
+	}
+	public static int[] dijkstraPath(Graph g, int source, int sink, SearchContext ctx) {
+		bidirectionalSearch(g, source, sink, ctx);
+		return ctx.pathTo(sink);
+	}
+	
+	/*
+	 * The search behind dijkstraSP and dijkstraPath.  It runs Dijkstra forwards from
+	 * source in ctx and backwards from sink, over g.reverse(), in ctx.backward(),
+	 * each step settling a vertex on whichever side has fewer vertices waiting.
+	 * Whenever an edge is scanned into a vertex the other side has reached, that
+	 * makes a path, and we remember the shortest one.  Once the closest waiting
+	 * vertices on the two sides are together at least as far apart as that path,
+	 * nothing still waiting can lead to a shorter one, so we stop.  Finally the
+	 * back half of the path is copied into ctx, so that ctx.dist(sink) and
+	 * ctx.pathTo(sink) give the answer.
+	 *
+	 * A graph that other threads may be writing to is searched through a snapshot
+	 * instead, so that both halves see the same edges, and the reverse graph the
+	 * back half needs belongs to that snapshot rather than being rebuilt on the
+	 * live graph for every write.
+	 */
+	private static void bidirectionalSearch(Graph g, int source, int sink, SearchContext ctx) {
+		if(g.hasNegativeEdges())
+			throw new IllegalArgumentException("Dijkstra's algorithm doesn't work with negative edge weights!");
+		if(g.concurrentlyModifiable())
+			g = g.snapshot();
+		SearchContext back = ctx.backward();
+		ctx.start(g);
+		back.start(g.reverse());
+		DaryHeap forwardHeap = ctx.heap();
+		DaryHeap backHeap = back.heap();
+		ctx.reach(source, 0, source);
+		forwardHeap.add(source, 0);
+		back.reach(sink, 0, sink);
+		backHeap.add(sink, 0);
+		int meet = source == sink ? source : -1; // where the shortest path so far crosses over
+		int best = meet < 0 ? Integer.MAX_VALUE/2 : 0;
+		while(!forwardHeap.isEmpty() && !backHeap.isEmpty()) {
+			if(forwardHeap.peekTopValue() + backHeap.peekTopValue() >= best)
+				break;
+			int crossing;
+			if(forwardHeap.size() <= backHeap.size())
+				crossing = settleNext(ctx, back, best);
+			else
+				crossing = settleNext(back, ctx, best);
+			if(crossing >= 0) {
+				meet = crossing;
+				best = ctx.dist(meet) + back.dist(meet);
+			}
+		}
+		if(meet < 0)
+			return; // sink can't be reached
+		// Follow the back half of the path from meet to sink, giving each vertex on
+		// it its distance from source.  Vertices the forward search already had at
+		// that distance keep their own predecessor, which keeps the path free of
+		// loops when there are edges of weight 0.
+		for(int u = meet; u != sink; ) {
+			int v = back.prev(u);
+			int d = best - back.dist(v);
+			if(ctx.dist(v) > d)
+				ctx.reach(v, d, u);
+			u = v;
+		}
+	}
+	
+	/*
+	 * Settles the closest vertex waiting on one side of a bidirectional search and
+	 * scans its edges.  Returns a vertex where this made a path shorter than best
+	 * cross over to the other side, or -1 if it didn't.
+	 */
+	private static int settleNext(SearchContext side, SearchContext other, int best) {
+		DaryHeap h = side.heap();
+		NeighborCursor edges = side.cursor();
+		int val = h.peekTopValue();
+		int current = h.dequeue();
+		side.finish(current);
+		int crossing = -1;
+		edges.reset(current);
+		for(int v = edges.nextTarget(); v >= 0; v = edges.nextTarget()) {
+			if(!side.isDone(v)) {
+				int d = val + edges.weight();
+				if(d < side.dist(v)) {
+					side.reach(v, d, current);
+					if(h.hasKey(v))
+						h.updateKey(v, d);
+					else
+						h.add(v, d);
+				}
+			}
+			if(other.reached(v) && side.dist(v) + other.dist(v) < best) {
+				crossing = v;
+				best = side.dist(v) + other.dist(v);
+			}
+		}
+		return crossing;
+	}
+	
+	/*
+	 * Finds the shortest distance from source to sink with A*, which is Dijkstra's
+	 * algorithm with each vertex's place in the heap set by its distance from
+	 * source plus the heuristic's estimate of its distance to sink.  A good
+	 * estimate (see Landmarks) keeps the search heading towards sink instead of
+	 * spreading out in every direction.  The heuristic must be consistent (see
+	 * Heuristic), which lets every vertex be finished with the first time it comes
+	 * off the heap, as in dijkstra.  Vertices the heuristic puts Integer.MAX_VALUE/2
+	 * or more from sink can't reach it at all, so they're never expanded.
+	 * Afterwards, ctx.pathTo(sink) gives the path, and ctx.settled() how many
+	 * vertices were looked at.
+	 * 
+	 * g: The graph, which mustn't have negative edges.
+	 * source: The starting vertex for the path.
+	 * sink: The ending vertex.
+	 * h: The estimate of the distance left to go.
+	 * ctx: Where to keep the search's state and results.
+	 */
+	public static int aStar(Graph g, int source, int sink, Heuristic h, SearchContext ctx) {
+		if(g.hasNegativeEdges())
+			throw new IllegalArgumentException("A* doesn't work with negative edge weights!");
+		ctx.start(g);
+		DaryHeap heap = ctx.heap();
+		NeighborCursor edges = ctx.cursor();
+		ctx.reach(source, 0, source);
+		int first = h.estimate(source, sink);
+		if(first < Integer.MAX_VALUE/2)
+			heap.add(source, first);
+		while(!heap.isEmpty()) {
+			int current = heap.dequeue();
+			ctx.finish(current);
+			if(current == sink)
+				break;
+			int val = ctx.dist(current);
+			edges.reset(current);
+			for(int v = edges.nextTarget(); v >= 0; v = edges.nextTarget()) {
+				if(ctx.isDone(v))
+					continue;
+				int d = val + edges.weight();
+				if(d < ctx.dist(v)) {
+					ctx.reach(v, d, current);
+					int estimate = h.estimate(v, sink);
+					if(estimate >= Integer.MAX_VALUE/2)
+						continue; // the heuristic knows v can't reach sink
+					int f = d + estimate;
+					if(heap.hasKey(v))
+						heap.updateKey(v, f);
+					else
+						heap.add(v, f);
+				}
+			}
+		}
+		return ctx.dist(sink);
+	}
+	public static int aStar(Graph g, int source, int sink, Heuristic h) {
+		return aStar(g, source, sink, h, new SearchContext(g.numVertices()));
 	}
 	
 	/*
@@ -424,23 +878,36 @@ public class GraphAlgs {
 			else
 				dists[i] = Float.POSITIVE_INFINITY;
 		}
-		ArrayList<Edge> allEdges = g.getEdgeList();
+		// The edges are read through a cursor rather than copied into EdgeArrays,
+		// so graphs bigger than the heap (a MappedGraph, say) can be streamed.
+		NeighborCursor edges = g.cursor();
 		
-		// Compute the distances
-		for(int i = 0; i < n-1; ++i) {
-			for(Edge e : allEdges) {
-				if(dists[e.u] + e.weight < dists[e.v]) {
-					dists[e.v] = dists[e.u] + e.weight;
-					prev[e.v] = e.u;
+		// Compute the distances.  A pass that changes nothing means every later
+		// pass would change nothing too, so we can stop there, and we also know
+		// there's no negative cost cycle to look for.
+		boolean changed = true;
+		for(int i = 0; i < n-1 && changed; ++i) {
+			changed = false;
+			for(int u = 0; u < n; ++u) {
+				edges.reset(u);
+				for(int v = edges.nextTarget(); v >= 0; v = edges.nextTarget()) {
+					if(dists[u] + edges.weight() < dists[v]) {
+						dists[v] = dists[u] + edges.weight();
+						prev[v] = u;
+						changed = true;
+					}
 				}
 			}
 		}
 		// check for negative cost cycles, if asked
-		if(check) {
-			for(Edge e : allEdges) {
-				if(dists[e.u] + e.weight < dists[e.v]) {
-					System.out.println("Negative cost cycle!");
-					return null;
+		if(check && changed) {
+			for(int u = 0; u < n; ++u) {
+				edges.reset(u);
+				for(int v = edges.nextTarget(); v >= 0; v = edges.nextTarget()) {
+					if(dists[u] + edges.weight() < dists[v]) {
+						System.out.println("Negative cost cycle!");
+						return null;
+					}
 				}
 			}
 		}
@@ -480,8 +947,16 @@ public class GraphAlgs {
 	 * dists: Same as in dijkstra and bellmanFord.
 	 */
 	public static int[] shortestPath(Graph g, int source, boolean dists) {
+		return shortestPath(g,source,dists,HeapStrategy.AUTO);
+	}
+	
+	/*
+	 * Same as above, but passes the choice of heap on to dijkstra.  It has no effect
+	 * if the graph has negative edges.
+	 */
+	public static int[] shortestPath(Graph g, int source, boolean dists, HeapFactory heaps) {
 		if(!g.hasNegativeEdges())
-			return dijkstra(g,source,dists);
+			return dijkstra(g,source,dists,heaps);
 		else
 			return bellmanFord(g,source,dists);
 	}
@@ -0,0 +1,323 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Reads a graph from an edge list file straight into a CsrGraph, rather than
+ * making one addEdge call per edge.  The file is split into chunks that are parsed
+ * in parallel, each by its own thread reading through its own buffer, and the
+ * edges are parsed directly from the bytes, so nothing is allocated per line.
+ * The graph itself is then built with one pass to count degrees and one to fill
+ * in the rows (see CsrGraph).
+ *
+ * Two formats are supported.  Text files have one edge per line, written as
+ * "u v" or "u v weight", separated by spaces, tabs or commas; the weight defaults
+ * to 1, and lines that are blank or start with # or % are skipped.  Binary files
+ * are a sequence of 12-byte records, each holding u, v, and the weight as
+ * little-endian ints.
+ *
+ * The number of vertices is one more than the largest vertex that appears.
+ */
+public class GraphLoader {
+	private static final int BUFFER_BYTES = 1 << 16;
+	private static final int BINARY_RECORD = 12;
+	private boolean directed;
+	private DuplicatePolicy duplicates;
+	private int threads;
+
+	/*
+	 * Creates a loader.
+	 *
+	 * directed: Whether each line is a directed edge (true) or should also be
+	 * 		added in the other direction, like addEdge does by default (false).
+	 * duplicates: What to do about edges that appear more than once.  For
+	 * 		undirected input, this applies after each edge has been mirrored.
+	 * threads: How many threads to parse with.
+	 */
+	public GraphLoader(boolean directed, DuplicatePolicy duplicates, int threads) {
+		if(threads < 1)
+			throw new IllegalArgumentException("Need at least one thread to load a graph");
+		this.directed = directed;
+		this.duplicates = duplicates;
+		this.threads = threads;
+	}
+	public GraphLoader(boolean directed) {
+		this(directed, DuplicatePolicy.KEEP_FIRST, Runtime.getRuntime().availableProcessors());
+	}
+	public GraphLoader() {
+		this(false);
+	}
+
+	/*
+	 * Loads a text edge list.
+	 *
+	 * file: The file to read.
+	 */
+	public CsrGraph loadText(File file) throws IOException {
+		return load(file, false);
+	}
+
+	/*
+	 * Loads a binary edge list.
+	 *
+	 * file: The file to read.
+	 */
+	public CsrGraph loadBinary(File file) throws IOException {
+		return load(file, true);
+	}
+
+	/*
+	 * Parses every chunk of the file in parallel, then stitches the chunks together
+	 * in order and hands them to CsrGraph.
+	 */
+	private CsrGraph load(File file, boolean binary) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		List<EdgeBuffer> parts = new ArrayList<EdgeBuffer>();
+		try {
+			final FileChannel ch = raf.getChannel();
+			long size = ch.size();
+			if(binary && size % BINARY_RECORD != 0)
+				throw new IOException(file + " is not a whole number of edge records");
+			// a few chunks per thread, so one slow chunk doesn't hold everyone up
+			int numChunks = (int)Math.max(1, Math.min(threads * 4L, size / BUFFER_BYTES));
+			long chunkSize = (size + numChunks - 1) / numChunks;
+			if(binary)
+				chunkSize = (chunkSize + BINARY_RECORD - 1) / BINARY_RECORD * BINARY_RECORD;
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			try {
+				List<Future<EdgeBuffer>> futures = new ArrayList<Future<EdgeBuffer>>();
+				for(long start = 0; start < size; start += chunkSize) {
+					final long from = start;
+					final long to = Math.min(size, start + chunkSize);
+					final boolean bin = binary;
+					futures.add(pool.submit(new Callable<EdgeBuffer>() {
+						public EdgeBuffer call() throws IOException {
+							ChunkReader in = new ChunkReader(ch, from);
+							return bin ? parseBinary(in, to) : parseText(in, to);
+						}
+					}));
+				}
+				for(Future<EdgeBuffer> f : futures)
+					parts.add(f.get());
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while loading " + file, e);
+			}
+			catch(ExecutionException e) {
+				if(e.getCause() instanceof IOException)
+					throw (IOException)e.getCause();
+				throw new IOException("Failed to load " + file, e.getCause());
+			}
+			finally {
+				pool.shutdownNow();
+			}
+		}
+		finally {
+			raf.close();
+		}
+		return build(parts);
+	}
+
+	/*
+	 * Joins the parsed chunks into one edge list, mirroring undirected edges, and
+	 * builds the graph.
+	 */
+	private CsrGraph build(List<EdgeBuffer> parts) {
+		long total = 0;
+		int maxVertex = -1;
+		for(EdgeBuffer part : parts) {
+			total += directed ? part.size : 2L * part.size;
+			maxVertex = Math.max(maxVertex, part.maxVertex);
+		}
+		if(total > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Too many edges for a CsrGraph: " + total);
+		int[] us = new int[(int)total];
+		int[] vs = new int[(int)total];
+		int[] ws = new int[(int)total];
+		int m = 0;
+		for(EdgeBuffer part : parts) {
+			for(int i = 0; i < part.size; ++i) {
+				int u = part.us[i];
+				int v = part.vs[i];
+				int w = part.ws[i];
+				us[m] = u;
+				vs[m] = v;
+				ws[m] = w;
+				m++;
+				if(!directed && u != v) {
+					us[m] = v;
+					vs[m] = u;
+					ws[m] = w;
+					m++;
+				}
+			}
+		}
+		return new CsrGraph(maxVertex + 1, us, vs, ws, m, duplicates);
+	}
+
+	/*
+	 * Parses the lines that start inside [in's starting position, end).  A line that
+	 * straddles the start belongs to the chunk before, and one that straddles the
+	 * end belongs to this one.
+	 */
+	private static EdgeBuffer parseText(ChunkReader in, long end) throws IOException {
+		EdgeBuffer edges = new EdgeBuffer();
+		if(in.position() > 0) {
+			// back up one byte to see whether we're at the start of a line
+			in.seek(in.position() - 1);
+			int c = in.read();
+			while(c != '\n' && c != -1)
+				c = in.read();
+		}
+		int[] fields = new int[3];
+		while(in.position() < end) {
+			long lineStart = in.position();
+			int count = 0;
+			int c = in.read();
+			while(c == ' ' || c == '\t' || c == '\r')
+				c = in.read();
+			if(c == '#' || c == '%') {
+				while(c != '\n' && c != -1)
+					c = in.read();
+				continue;
+			}
+			while(c != '\n' && c != -1) {
+				if(c == ' ' || c == '\t' || c == ',' || c == '\r') {
+					c = in.read();
+					continue;
+				}
+				boolean negative = false;
+				if(c == '-') {
+					negative = true;
+					c = in.read();
+				}
+				if(c < '0' || c > '9' || count == 3)
+					throw new IOException("Bad edge on the line starting at byte " + lineStart);
+				long value = 0;
+				while(c >= '0' && c <= '9') {
+					value = value * 10 + (c - '0');
+					if(value > Integer.MAX_VALUE)
+						throw new IOException("Number too large on the line starting at byte " + lineStart);
+					c = in.read();
+				}
+				fields[count++] = negative ? (int)-value : (int)value;
+			}
+			if(count == 0)
+				continue;
+			if(count == 1 || fields[0] < 0 || fields[1] < 0)
+				throw new IOException("Bad edge on the line starting at byte " + lineStart);
+			edges.add(fields[0], fields[1], count == 3 ? fields[2] : 1);
+		}
+		return edges;
+	}
+
+	/*
+	 * Parses the records in [in's starting position, end), which the caller has
+	 * lined up on record boundaries.
+	 */
+	private static EdgeBuffer parseBinary(ChunkReader in, long end) throws IOException {
+		EdgeBuffer edges = new EdgeBuffer();
+		while(in.position() < end) {
+			long recordStart = in.position();
+			int u = in.readInt();
+			int v = in.readInt();
+			int w = in.readInt();
+			if(u < 0 || v < 0)
+				throw new IOException("Bad edge in the record at byte " + recordStart);
+			edges.add(u, v, w);
+		}
+		return edges;
+	}
+
+	/*
+	 * Reads a file sequentially from some starting point through a private buffer,
+	 * using positional reads so that several of them can share one channel.
+	 */
+	private static class ChunkReader {
+		private FileChannel ch;
+		private ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		private long bufStart; // the file position of the start of buf
+		ChunkReader(FileChannel ch, long start) throws IOException {
+			this.ch = ch;
+			seek(start);
+		}
+		void seek(long pos) throws IOException {
+			bufStart = pos;
+			buf.clear();
+			buf.limit(0);
+		}
+		long position() {
+			return bufStart + buf.position();
+		}
+		// Returns false at the end of the file
+		private boolean fill() throws IOException {
+			bufStart += buf.position();
+			buf.clear();
+			int n = 0;
+			while(n == 0)
+				n = ch.read(buf, bufStart);
+			buf.flip();
+			return n > 0;
+		}
+		int read() throws IOException {
+			if(!buf.hasRemaining() && !fill())
+				return -1;
+			return buf.get() & 0xff;
+		}
+		int readInt() throws IOException {
+			if(buf.remaining() < 4) {
+				// shift the leftover bytes to the front, then top the buffer up
+				bufStart += buf.position();
+				buf.compact();
+				long pos = bufStart + buf.position();
+				while(buf.position() < 4) {
+					int n = ch.read(buf, pos);
+					if(n < 0)
+						throw new IOException("Unexpected end of file at byte " + pos);
+					pos += n;
+				}
+				buf.flip();
+			}
+			return buf.getInt();
+		}
+	}
+
+	/*
+	 * A growable list of edges stored in parallel int arrays.
+	 */
+	private static class EdgeBuffer {
+		int[] us = new int[1024];
+		int[] vs = new int[1024];
+		int[] ws = new int[1024];
+		int size = 0;
+		int maxVertex = -1;
+		void add(int u, int v, int w) {
+			if(size == us.length) {
+				int cap = size + (size >> 1);
+				us = Arrays.copyOf(us, cap);
+				vs = Arrays.copyOf(vs, cap);
+				ws = Arrays.copyOf(ws, cap);
+			}
+			us[size] = u;
+			vs[size] = v;
+			ws[size] = w;
+			size++;
+			if(u > maxVertex)
+				maxVertex = u;
+			if(v > maxVertex)
+				maxVertex = v;
+		}
+	}
+}
@@ -0,0 +1,13 @@
+/*
+ * Makes the priority queue for one run of a search like dijkstra.  Pass one to
+ * dijkstra or shortestPath to choose the queue yourself; HeapStrategy has the
+ * built-in choices.
+ */
+public interface HeapFactory {
+	/*
+	 * Returns an empty heap that can hold the keys 0 through g.numVertices()-1
+	 * with values up to the length of any shortest path in g.  The graph is passed
+	 * in so the factory can size the heap, or pick one, to suit it.
+	 */
+	public Heap newHeap(Graph g);
+}
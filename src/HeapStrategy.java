@@ -0,0 +1,56 @@
+/*
+ * The built-in choices of priority queue for dijkstra and shortestPath.  AUTO is
+ * what they use unless told otherwise.  The benchmarks in bench/ compare them all
+ * on the same work, which is the place to start when choosing one for a
+ * particular kind of graph.
+ */
+public enum HeapStrategy implements HeapFactory {
+	// BUCKET when the edge weights are small enough for it, DARY otherwise.  A graph
+	// that can gain heavier edges mid-search would overflow the bucket window, so
+	// those always get DARY.
+	AUTO {
+		public Heap newHeap(Graph g) {
+			if(g.concurrentlyModifiable())
+				return new DaryHeap(g.numVertices());
+			int maxWeight = g.maxEdgeWeight();
+			if(maxWeight <= BUCKET_LIMIT)
+				return new BucketHeap(g.numVertices(), maxWeight);
+			return new DaryHeap(g.numVertices());
+		}
+	},
+	// the original binary heap, FixedHeap
+	BINARY {
+		public Heap newHeap(Graph g) {
+			return new FixedHeap(g.numVertices());
+		}
+	},
+	// a 4-ary heap; see DaryHeap
+	DARY {
+		public Heap newHeap(Graph g) {
+			return new DaryHeap(g.numVertices());
+		}
+	},
+	// Dial's bucket queue, sized from the largest edge weight; see BucketHeap
+	BUCKET {
+		public Heap newHeap(Graph g) {
+			return new BucketHeap(g.numVertices(), Math.max(g.maxEdgeWeight(), 0));
+		}
+	},
+	// see PairingHeap
+	PAIRING {
+		public Heap newHeap(Graph g) {
+			return new PairingHeap(g.numVertices());
+		}
+	},
+	// pushes a new entry on every update instead of moving the old one; see LazyHeap
+	LAZY {
+		public Heap newHeap(Graph g) {
+			return new LazyHeap(g.numVertices());
+		}
+	};
+
+	// The largest edge weight for which AUTO picks a BucketHeap.  Stepping over
+	// empty buckets costs up to the longest distance found, so the bucket queue
+	// only wins while the weights (and so the distances) stay small.
+	private static final int BUCKET_LIMIT = 1 << 12;
+}
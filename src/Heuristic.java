@@ -0,0 +1,20 @@
+/*
+ * An estimate of how far one vertex is from another, for steering aStar towards
+ * its target.  The estimate must never be more than the real distance, or aStar
+ * may return a path that isn't the shortest, and it must be consistent: for every
+ * edge (u,v), estimate(u,t) <= weight(u,v) + estimate(v,t).  Landmarks is one;
+ * NONE, which always guesses 0, turns aStar back into plain Dijkstra.
+ */
+public interface Heuristic {
+	public static final Heuristic NONE = new Heuristic() {
+		public int estimate(int v, int target) {
+			return 0;
+		}
+	};
+
+	/*
+	 * Returns a lower bound on the distance from v to target, between 0 and
+	 * Integer.MAX_VALUE/2, which means target can't be reached from v.
+	 */
+	public int estimate(int v, int target);
+}
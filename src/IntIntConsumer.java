@@ -0,0 +1,12 @@
+/*
+ * A callback that takes a pair of ints without boxing them.  Graphs use it to
+ * hand each neighbor of a vertex to the caller along with the weight of the
+ * edge leading to it.
+ */
+public interface IntIntConsumer {
+	/*
+	 * target: The vertex at the other end of the edge.
+	 * weight: The weight of the edge.
+	 */
+	public void accept(int target, int weight);
+}
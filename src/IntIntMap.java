@@ -0,0 +1,187 @@
+import java.util.Arrays;
+
+/*
+ * A hash map from int to int that never boxes anything.  It uses open addressing
+ * with linear probing over a pair of parallel arrays, and removes entries by
+ * shifting later ones back into the hole rather than leaving tombstones, so once
+ * it has grown to its working size it doesn't allocate again.  Integer.MIN_VALUE
+ * marks an empty slot, so it can't be used as a key.
+ *
+ * The entries can be walked by slot: for(int i = m.nextSlot(0); i >= 0; i =
+ * m.nextSlot(i+1)) visits every entry, with the key and value at keyAt(i) and
+ * valueAt(i).  Adding or removing entries moves them around, so don't do that
+ * in the middle of a walk.
+ */
+public class IntIntMap {
+	private static final int FREE = Integer.MIN_VALUE;
+	private int[] keys;
+	private int[] values;
+	private int size = 0;
+	private int mask; // capacity - 1; the capacity is always a power of two
+
+	/*
+	 * Makes a map with room for about expected entries before it has to grow.
+	 */
+	public IntIntMap(int expected) {
+		int cap = 4;
+		while(cap * 3 / 4 <= expected)
+			cap <<= 1;
+		keys = new int[cap];
+		values = new int[cap];
+		Arrays.fill(keys, FREE);
+		mask = cap - 1;
+	}
+	public IntIntMap() {
+		this(4);
+	}
+
+	/*
+	 * Makes an independent copy of another map.
+	 */
+	public IntIntMap(IntIntMap other) {
+		keys = other.keys.clone();
+		values = other.values.clone();
+		size = other.size;
+		mask = other.mask;
+	}
+
+	private static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/*
+	 * Finds the slot holding key, or the empty slot where it would go.
+	 */
+	private int slot(int key) {
+		int i = hash(key) & mask;
+		while(keys[i] != FREE && keys[i] != key)
+			i = (i + 1) & mask;
+		return i;
+	}
+
+	/*
+	 * Returns the value for key, or missing if there isn't one.
+	 */
+	public int get(int key, int missing) {
+		int i = slot(key);
+		return keys[i] == FREE ? missing : values[i];
+	}
+
+	public boolean containsKey(int key) {
+		return keys[slot(key)] != FREE;
+	}
+
+	/*
+	 * Maps key to value, returning the old value, or missing if there wasn't one.
+	 */
+	public int put(int key, int value, int missing) {
+		if(key == FREE)
+			throw new IllegalArgumentException("Integer.MIN_VALUE can't be used as a key");
+		int i = slot(key);
+		if(keys[i] != FREE) {
+			int old = values[i];
+			values[i] = value;
+			return old;
+		}
+		keys[i] = key;
+		values[i] = value;
+		if(++size > (mask + 1) * 3 / 4)
+			grow();
+		return missing;
+	}
+
+	/*
+	 * Maps key to value only if key isn't already in the map.  Returns whether it
+	 * was added.
+	 */
+	public boolean putIfAbsent(int key, int value) {
+		if(key == FREE)
+			throw new IllegalArgumentException("Integer.MIN_VALUE can't be used as a key");
+		int i = slot(key);
+		if(keys[i] != FREE)
+			return false;
+		keys[i] = key;
+		values[i] = value;
+		if(++size > (mask + 1) * 3 / 4)
+			grow();
+		return true;
+	}
+
+	/*
+	 * Removes key, returning its value, or missing if it wasn't there.
+	 */
+	public int remove(int key, int missing) {
+		int i = slot(key);
+		if(keys[i] == FREE)
+			return missing;
+		int old = values[i];
+		// Shift back any entries that probed past the hole we're about to make
+		int hole = i;
+		int j = (i + 1) & mask;
+		while(keys[j] != FREE) {
+			int home = hash(keys[j]) & mask;
+			// move j into the hole unless its home lies cyclically in (hole, j]
+			if(((j - home) & mask) >= ((j - hole) & mask)) {
+				keys[hole] = keys[j];
+				values[hole] = values[j];
+				hole = j;
+			}
+			j = (j + 1) & mask;
+		}
+		keys[hole] = FREE;
+		size--;
+		return old;
+	}
+
+	private void grow() {
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new int[oldKeys.length * 2];
+		values = new int[oldKeys.length * 2];
+		Arrays.fill(keys, FREE);
+		mask = keys.length - 1;
+		for(int i = 0; i < oldKeys.length; ++i) {
+			if(oldKeys[i] != FREE) {
+				int j = slot(oldKeys[i]);
+				keys[j] = oldKeys[i];
+				values[j] = oldValues[i];
+			}
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/*
+	 * Removes everything, keeping the current capacity.
+	 */
+	public void clear() {
+		if(size > 0) {
+			Arrays.fill(keys, FREE);
+			size = 0;
+		}
+	}
+
+	/*
+	 * Returns the first slot at or after from that holds an entry, or -1.
+	 */
+	public int nextSlot(int from) {
+		for(int i = from; i <= mask; ++i) {
+			if(keys[i] != FREE)
+				return i;
+		}
+		return -1;
+	}
+	public int keyAt(int slot) {
+		return keys[slot];
+	}
+	public int valueAt(int slot) {
+		return values[slot];
+	}
+}
@@ -0,0 +1,116 @@
+import java.util.Arrays;
+
+/*
+ * The ALT heuristic for aStar (A*, landmarks, and the triangle inequality).  A
+ * few vertices are picked as landmarks, and the distances from each landmark to
+ * every vertex and from every vertex back to it are worked out once, with
+ * dijkstra.  Then for any landmark L, d(v,t) >= d(L,t) - d(L,v) and
+ * d(v,t) >= d(v,L) - d(t,L), and the best of those bounds over all the
+ * landmarks is usually close to the real distance, which keeps aStar headed
+ * straight for the target.  Landmarks on the edge of the graph work best, so by
+ * default they're picked one at a time, each as far as possible from the ones
+ * picked so far.
+ *
+ * This costs two ints per vertex per landmark.  The distances are only right
+ * for the graph as it was when they were worked out, so after modifying the
+ * graph, make a new one.
+ */
+public class Landmarks implements Heuristic {
+	private int[] landmarks;
+	private int[][] from; // from[i][v] is the distance from landmarks[i] to v
+	private int[][] to; // and to[i][v] from v to landmarks[i]
+
+	/*
+	 * Picks k landmarks spread out across g (or fewer, if g is smaller), and
+	 * works out their distances.
+	 */
+	public Landmarks(Graph g, int k) {
+		int n = g.numVertices();
+		if(k < 1 || n == 0)
+			throw new IllegalArgumentException("Need at least one landmark and one vertex");
+		k = Math.min(k, n);
+		allocate(k);
+		Graph reversed = g.reverse();
+		// how far each vertex is from the nearest landmark, one way or the other
+		int[] nearest = GraphAlgs.dijkstra(g, 0, true);
+		int next = farthest(nearest);
+		Arrays.fill(nearest, Integer.MAX_VALUE);
+		for(int i = 0; i < k; ++i) {
+			measure(g, reversed, i, next);
+			for(int v = 0; v < n; ++v)
+				nearest[v] = Math.min(nearest[v], Math.min(from[i][v], to[i][v]));
+			next = farthest(nearest);
+		}
+	}
+
+	/*
+	 * Uses the given vertices as the landmarks.
+	 */
+	public Landmarks(Graph g, int[] landmarks) {
+		if(landmarks.length < 1)
+			throw new IllegalArgumentException("Need at least one landmark");
+		allocate(landmarks.length);
+		Graph reversed = g.reverse();
+		for(int i = 0; i < landmarks.length; ++i)
+			measure(g, reversed, i, landmarks[i]);
+	}
+
+	private void allocate(int k) {
+		landmarks = new int[k];
+		from = new int[k][];
+		to = new int[k][];
+	}
+
+	private void measure(Graph g, Graph reversed, int i, int landmark) {
+		landmarks[i] = landmark;
+		from[i] = GraphAlgs.dijkstra(g, landmark, true);
+		to[i] = GraphAlgs.dijkstra(reversed, landmark, true);
+	}
+
+	/*
+	 * Returns the farthest vertex that isn't cut off, since a landmark that most of
+	 * the graph can't reach, or be reached from, gives hardly any bounds.  Only if
+	 * every vertex left is cut off does it fall back on one of those.
+	 */
+	private static int farthest(int[] dists) {
+		int best = -1;
+		int fallback = 0;
+		for(int v = 0; v < dists.length; ++v) {
+			if(dists[v] < Integer.MAX_VALUE/2) {
+				if(best < 0 || dists[v] > dists[best])
+					best = v;
+			}
+			else if(dists[v] > dists[fallback])
+				fallback = v;
+		}
+		return best >= 0 ? best : fallback;
+	}
+
+	/*
+	 * Returns a copy of the landmarks in use.
+	 */
+	public int[] landmarks() {
+		return landmarks.clone();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Heuristic#estimate(int, int)
+	 */
+	public int estimate(int v, int target) {
+		final int INF = Integer.MAX_VALUE/2;
+		int best = 0;
+		for(int i = 0; i < landmarks.length; ++i) {
+			int[] f = from[i];
+			int[] t = to[i];
+			// If the landmark reaches v but not target, or target reaches the
+			// landmark but v doesn't, then v can't reach target either.
+			if((f[target] >= INF && f[v] < INF) || (t[v] >= INF && t[target] < INF))
+				return INF;
+			int bound = Math.max(f[target] - f[v], t[v] - t[target]);
+			if(bound > best)
+				best = bound;
+		}
+		return best;
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * An implementation of the Heap interface that never moves anything on updateKey.
+ * Instead it pushes another entry for the key with its new value, and leaves the
+ * old one where it is; entries whose value isn't their key's current value are
+ * thrown away when they reach the top.  That makes updateKey a plain push onto a
+ * LongHeap of packed (value, key) longs, with no position tracking, and the heap
+ * only ever grows to the number of adds and updates.  It's often the fastest
+ * choice for Dijkstra's algorithm in practice, at the cost of that extra memory.
+ * Keys must be in [0, num).
+ */
+public class LazyHeap implements Heap {
+	private LongHeap entries;
+	private int[] values; // the current value of each key in the heap
+	private boolean[] present; // whether each key is in the heap
+	private int size = 0; // the number of keys in the heap, not entries
+
+	/*
+	 * Makes a heap for the keys 0 through num-1.
+	 */
+	public LazyHeap(int num) {
+		entries = new LongHeap(num);
+		values = new int[num];
+		present = new boolean[num];
+	}
+
+	/*
+	 * Pops entries off the top until the top one is still current.
+	 */
+	private void skipStale() {
+		while(!entries.isEmpty()) {
+			long top = entries.peek();
+			int key = LongHeap.keyOf(top);
+			if(present[key] && values[key] == LongHeap.valueOf(top))
+				return;
+			entries.poll();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Heap#dequeue()
+	 */
+	public int dequeue() {
+		if(size == 0)
+			return -1;
+		skipStale();
+		int key = LongHeap.keyOf(entries.poll());
+		present[key] = false;
+		size--;
+		return key;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Heap#add(int, int)
+	 */
+	public void add(int key, int value) {
+		if(present[key])
+			throw new IllegalArgumentException("Key " + key + " is already in the heap");
+		present[key] = true;
+		values[key] = value;
+		size++;
+		entries.add(LongHeap.pack(key, value));
+	}
+
+	/*
+	 * The new value can be bigger or smaller than the old one.
+	 * (non-Javadoc)
+	 * @see Heap#updateKey(int, int)
+	 */
+	public void updateKey(int key, int newValue) {
+		if(!present[key])
+			throw new IllegalArgumentException("Key " + key + " is not in the heap");
+		if(values[key] == newValue)
+			return;
+		values[key] = newValue;
+		entries.add(LongHeap.pack(key, newValue));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Heap#isEmpty()
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Heap#hasKey(int)
+	 */
+	public boolean hasKey(int key) {
+		return present[key];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Heap#peekTopValue()
+	 */
+	public int peekTopValue() {
+		if(size == 0)
+			throw new IllegalStateException("The heap is empty");
+		skipStale();
+		return LongHeap.valueOf(entries.peek());
+	}
+
+	/*
+	 * Returns -1 if the heap is empty.
+	 * (non-Javadoc)
+	 * @see Heap#peekTop()
+	 */
+	public int peekTop() {
+		if(size == 0)
+			return -1;
+		skipStale();
+		return LongHeap.keyOf(entries.peek());
+	}
+
+	/*
+	 * Returns Integer.MAX_VALUE/4 for keys that aren't in the heap, like FixedHeap.
+	 * (non-Javadoc)
+	 * @see Heap#getValue(int)
+	 */
+	public int getValue(int key) {
+		if(!present[key])
+			return Integer.MAX_VALUE/4;
+		return values[key];
+	}
+}
@@ -0,0 +1,88 @@
+import java.util.Arrays;
+
+/*
+ * A plain binary min-heap of longs, with none of the key tracking the Heap
+ * implementations do.  The heaps built on it pack a value and a key into each long
+ * (value in the high half), so the smallest long is the entry with the smallest
+ * value.  It grows as needed, and sifts with loops.
+ */
+public class LongHeap {
+	private long[] heap;
+	private int size = 0;
+
+	public LongHeap(int capacity) {
+		heap = new long[Math.max(capacity, 1)];
+	}
+	public LongHeap() {
+		this(16);
+	}
+
+	public void add(long x) {
+		if(size == heap.length)
+			heap = Arrays.copyOf(heap, size * 2);
+		int index = size++;
+		while(index > 0) {
+			int parent = (index - 1) / 2;
+			if(heap[parent] <= x)
+				break;
+			heap[index] = heap[parent];
+			index = parent;
+		}
+		heap[index] = x;
+	}
+
+	/*
+	 * Returns the smallest entry without removing it.  The heap must not be empty.
+	 */
+	public long peek() {
+		return heap[0];
+	}
+
+	/*
+	 * Removes and returns the smallest entry.  The heap must not be empty.
+	 */
+	public long poll() {
+		long top = heap[0];
+		long x = heap[--size];
+		int index = 0;
+		while(true) {
+			int child = 2*index + 1;
+			if(child >= size)
+				break;
+			if(child + 1 < size && heap[child+1] < heap[child])
+				child++;
+			if(heap[child] >= x)
+				break;
+			heap[index] = heap[child];
+			index = child;
+		}
+		heap[index] = x;
+		return top;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	/*
+	 * Packs a key and a value into one long, so that longs compare by value and
+	 * then by key.  The key must not be negative.
+	 */
+	public static long pack(int key, int value) {
+		return ((long)value << 32) | key;
+	}
+	public static int keyOf(long entry) {
+		return (int)entry;
+	}
+	public static int valueOf(long entry) {
+		return (int)(entry >> 32);
+	}
+}
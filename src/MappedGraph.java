@@ -0,0 +1,345 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * A read-only Graph that lives in a file and is memory-mapped rather than loaded.
+ * The file holds the same layout as CsrGraph: a header, then the row offsets, then
+ * the targets of every edge, then their weights, with each row sorted by target.
+ * Opening one only maps the file, so it's nearly instant no matter how big the
+ * graph is, and since the operating system pages the edges in and out as they're
+ * used, the graph can be larger than the Java heap.
+ *
+ * The file format, all little-endian:
+ * 	int		magic number, MAGIC
+ * 	int		format version, FORMAT_VERSION
+ * 	int		number of vertices, n
+ * 	int		flags; bit 0 is set if any edge weight is negative
+ * 	long	number of directed edges, m
+ * 	long[n+1]	row offsets; row u is edges offsets[u] through offsets[u+1]-1
+ * 	int[m]	edge targets
+ * 	int[m]	edge weights
+ */
+public class MappedGraph extends Graph {
+	static final int MAGIC = 0x47525048; // "GRPH"
+	static final int FORMAT_VERSION = 1;
+	private static final int HEADER_BYTES = 24;
+	private static final int FLAG_NEGATIVE = 1;
+	// A single mapping can't be larger than 2GB, so big arrays are split up into
+	// segments of 2^SEGMENT_BITS elements each.
+	private static final int SEGMENT_BITS = 27;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+	private int numVerts;
+	private long numEdges;
+	private boolean negative;
+	private LongBuffer[] offsets;
+	private IntBuffer[] targets;
+	private IntBuffer[] weights;
+
+	/*
+	 * Maps a graph file written by write.
+	 *
+	 * file: The file to open.
+	 */
+	public MappedGraph(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel ch = raf.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			while(header.hasRemaining()) {
+				if(ch.read(header, header.position()) < 0)
+					throw new IOException(file + " is too short to be a graph file");
+			}
+			header.flip();
+			if(header.getInt() != MAGIC)
+				throw new IOException(file + " is not a graph file");
+			int format = header.getInt();
+			if(format != FORMAT_VERSION)
+				throw new IOException(file + " has unsupported format version " + format);
+			numVerts = header.getInt();
+			negative = (header.getInt() & FLAG_NEGATIVE) != 0;
+			numEdges = header.getLong();
+			long offsetsStart = HEADER_BYTES;
+			long targetsStart = offsetsStart + 8L * (numVerts + 1);
+			long weightsStart = targetsStart + 4L * numEdges;
+			if(ch.size() < weightsStart + 4L * numEdges)
+				throw new IOException(file + " is truncated");
+			ByteBuffer[] raw = map(ch, offsetsStart, numVerts + 1L, 8);
+			offsets = new LongBuffer[raw.length];
+			for(int i = 0; i < raw.length; ++i)
+				offsets[i] = raw[i].asLongBuffer();
+			targets = mapInts(ch, targetsStart, numEdges);
+			weights = mapInts(ch, weightsStart, numEdges);
+		}
+		finally {
+			// the mappings stay valid after the channel is closed
+			raf.close();
+		}
+	}
+
+	/*
+	 * Maps count elements of the given size starting at pos, one segment at a time.
+	 */
+	private static ByteBuffer[] map(FileChannel ch, long pos, long count, int size) throws IOException {
+		int numSegments = (int)((count + SEGMENT_MASK) >>> SEGMENT_BITS);
+		ByteBuffer[] ret = new ByteBuffer[Math.max(numSegments, 1)];
+		for(int i = 0; i < ret.length; ++i) {
+			long first = (long)i << SEGMENT_BITS;
+			long len = Math.min(count - first, 1L << SEGMENT_BITS);
+			ret[i] = ch.map(FileChannel.MapMode.READ_ONLY, pos + first * size, Math.max(len, 0) * size).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		return ret;
+	}
+	private static IntBuffer[] mapInts(FileChannel ch, long pos, long count) throws IOException {
+		ByteBuffer[] raw = map(ch, pos, count, 4);
+		IntBuffer[] ret = new IntBuffer[raw.length];
+		for(int i = 0; i < raw.length; ++i)
+			ret[i] = raw[i].asIntBuffer();
+		return ret;
+	}
+
+	/*
+	 * Writes any graph out in the format that MappedGraph reads.  Graphs other
+	 * than CsrGraphs are converted to one first to get their rows sorted.
+	 *
+	 * g: The graph to write.
+	 * file: Where to write it; any existing file is replaced.
+	 */
+	public static void write(Graph g, File file) throws IOException {
+		if(!(g instanceof CsrGraph) && !(g instanceof MappedGraph))
+			g = new CsrGraph(g);
+		int n = g.numVertices();
+		long m = 0;
+		for(int u = 0; u < n; ++u)
+			m += g.degree(u);
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(0);
+			FileChannel ch = raf.getChannel();
+			ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+			buf.putInt(MAGIC);
+			buf.putInt(FORMAT_VERSION);
+			buf.putInt(n);
+			buf.putInt(g.hasNegativeEdges() ? FLAG_NEGATIVE : 0);
+			buf.putLong(m);
+			long offset = 0;
+			for(int u = 0; u <= n; ++u) {
+				if(buf.remaining() < 8)
+					drain(ch, buf);
+				buf.putLong(offset);
+				if(u < n)
+					offset += g.degree(u);
+			}
+			NeighborCursor c = g.cursor();
+			for(int pass = 0; pass < 2; ++pass) {
+				for(int u = 0; u < n; ++u) {
+					c.reset(u);
+					for(int v = c.nextTarget(); v >= 0; v = c.nextTarget()) {
+						if(buf.remaining() < 4)
+							drain(ch, buf);
+						buf.putInt(pass == 0 ? v : c.weight());
+					}
+				}
+			}
+			drain(ch, buf);
+		}
+		finally {
+			raf.close();
+		}
+	}
+
+	/*
+	 * Writes out everything in the buffer and empties it.
+	 */
+	private static void drain(FileChannel ch, ByteBuffer buf) throws IOException {
+		buf.flip();
+		while(buf.hasRemaining())
+			ch.write(buf);
+		buf.clear();
+	}
+
+	/*
+	 * Accessors for the mapped arrays, hiding the segments.
+	 */
+	private long offset(int u) {
+		return offsets[u >>> SEGMENT_BITS].get((int)(u & SEGMENT_MASK));
+	}
+	private int target(long i) {
+		return targets[(int)(i >>> SEGMENT_BITS)].get((int)(i & SEGMENT_MASK));
+	}
+	private int weight(long i) {
+		return weights[(int)(i >>> SEGMENT_BITS)].get((int)(i & SEGMENT_MASK));
+	}
+
+	/*
+	 * Finds the position of the edge u->v, or -1 if there isn't one.
+	 */
+	private long find(int u, int v) {
+		long lo = offset(u);
+		long hi = offset(u+1) - 1;
+		while(lo <= hi) {
+			long mid = (lo + hi) >>> 1;
+			int t = target(mid);
+			if(t < v)
+				lo = mid + 1;
+			else if(t > v)
+				hi = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#addEdge(int, int, int, boolean)
+	 */
+	public void addEdge(int u, int v, int weight, boolean dir) {
+		throw new UnsupportedOperationException("MappedGraph is read-only");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#changeEdge(int, int, int, boolean)
+	 */
+	public void changeEdge(int u, int v, int weight, boolean dir) {
+		throw new UnsupportedOperationException("MappedGraph is read-only");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#edgeWeight(int, int)
+	 */
+	public int edgeWeight(int u, int v) {
+		long i = find(u,v);
+		if(i < 0)
+			return 0;
+		return weight(i);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#edgeExists(int, int)
+	 */
+	public boolean edgeExists(int u, int v) {
+		return find(u,v) >= 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#degree(int)
+	 */
+	public int degree(int u) {
+		return (int)(offset(u+1) - offset(u));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#forEachNeighbor(int, IntIntConsumer)
+	 */
+	public void forEachNeighbor(int u, IntIntConsumer action) {
+		long end = offset(u+1);
+		for(long i = offset(u); i < end; ++i)
+			action.accept(target(i), weight(i));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#cursor()
+	 */
+	public NeighborCursor cursor() {
+		return new SliceCursor();
+	}
+
+	/*
+	 * Walks one row's slice of the mapped arrays.
+	 */
+	private class SliceCursor extends NeighborCursor {
+		private long next;
+		private long end;
+		public void reset(int u) {
+			next = offset(u) - 1;
+			end = offset(u+1);
+		}
+		public int nextTarget() {
+			if(++next >= end) {
+				next = end;
+				return -1;
+			}
+			return target(next);
+		}
+		public int weight() {
+			return MappedGraph.this.weight(next);
+		}
+	}
+
+	/*
+	 * Only sensible for small graphs, since it copies everything onto the heap.
+	 * (non-Javadoc)
+	 * @see Graph#getAdjList()
+	 */
+	public Map<Integer,Integer>[] getAdjList() {
+		Map<Integer,Integer>[] ret = new Map[numVerts];
+		for(int u = 0; u < numVerts; ++u) {
+			ret[u] = new LinkedHashMap<Integer,Integer>();
+			long end = offset(u+1);
+			for(long i = offset(u); i < end; ++i)
+				ret[u].put(target(i), weight(i));
+		}
+		return ret;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#getAdjMatrix()
+	 */
+	public int[][] getAdjMatrix() {
+		int[][] ret = new int[numVerts][numVerts];
+		for(int u = 0; u < numVerts; ++u) {
+			long end = offset(u+1);
+			for(long i = offset(u); i < end; ++i)
+				ret[u][target(i)] = weight(i);
+		}
+		return ret;
+	}
+
+	/*
+	 * A MappedGraph never changes, so it's already its own snapshot.
+	 * (non-Javadoc)
+	 * @see Graph#snapshot()
+	 */
+	public Graph snapshot() {
+		return this;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#numVertices()
+	 */
+	public int numVertices() {
+		return numVerts;
+	}
+
+	/*
+	 * Returns the number of directed edges in the file.
+	 */
+	public long numEdges() {
+		return numEdges;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Graph#hasNegativeEdges()
+	 */
+	public boolean hasNegativeEdges() {
+		return negative;
+	}
+}
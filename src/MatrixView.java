@@ -0,0 +1,53 @@
+/*
+ * A read-only snapshot of a graph's adjacency matrix.  Graphs hand these out from
+ * matrixView() and keep them around until the graph is next modified, so code
+ * that only needs to look at the matrix doesn't pay for a fresh O(V^2) copy on
+ * every call the way getAdjMatrix does.  The view never changes after it's built;
+ * once the graph moves on, version() tells you which state it came from.
+ */
+public class MatrixView {
+	private final int[][] matrix;
+	private final int version;
+	
+	/*
+	 * Wraps the given matrix, which the view takes ownership of.
+	 * 
+	 * matrix: The adjacency matrix; nobody else should hold on to it.
+	 * version: The version of the graph it was made from.
+	 */
+	MatrixView(int[][] matrix, int version) {
+		this.matrix = matrix;
+		this.version = version;
+	}
+	
+	/*
+	 * Returns the weight of the edge u->v, or 0 if there isn't one.
+	 */
+	public int get(int u, int v) {
+		return matrix[u][v];
+	}
+	
+	/*
+	 * Returns the number of vertices, which is the number of rows and columns.
+	 */
+	public int size() {
+		return matrix.length;
+	}
+	
+	/*
+	 * The version of the graph this view was taken from.
+	 */
+	public int version() {
+		return version;
+	}
+	
+	/*
+	 * Returns a copy of the matrix that the caller is free to change.
+	 */
+	public int[][] toArray() {
+		int[][] ret = new int[matrix.length][];
+		for(int i = 0; i < matrix.length; ++i)
+			ret[i] = matrix[i].clone();
+		return ret;
+	}
+}
@@ -0,0 +1,134 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * A priority queue that many threads can add to and take from at once, in
+ * exchange for only roughly taking the smallest entry.  It's a set of ordinary
+ * heaps, each behind its own lock.  add puts the entry in a random heap, and poll
+ * looks at the tops of two random heaps and takes the better one, so threads
+ * hardly ever want the same lock at once, and when they do they just try another
+ * heap instead of waiting (every lock is only ever tried, never waited on).  What
+ * comes out isn't always the global minimum, but it's close to it, which is all
+ * a label-correcting search like parallelDijkstra needs.
+ *
+ * Like LazyHeap there's no updateKey: searches push a key again when they find a
+ * better value, and skip entries that turn out to be stale.  Entries are (key,
+ * value) pairs packed into longs with LongHeap.pack, and keys must not be
+ * negative.  Use a few heaps per thread; fewer means more contention, and more
+ * means poll strays further from the true minimum.
+ */
+public class MultiQueue {
+	// What poll returns when it finds nothing.  No packed entry can equal it,
+	// since its low half would be a key of -1.
+	public static final long EMPTY = Long.MAX_VALUE;
+	// Each heap's top is kept this many longs apart in tops, which puts them on
+	// different cache lines, so updating one doesn't slow down readers of another.
+	private static final int PAD = 8;
+	private final LongHeap[] heaps;
+	private final ReentrantLock[] locks;
+	private final AtomicLongArray tops; // the top of heap i at i*PAD, or EMPTY
+
+	/*
+	 * Makes a queue out of numQueues heaps, which must be at least two.
+	 */
+	public MultiQueue(int numQueues) {
+		if(numQueues < 2)
+			throw new IllegalArgumentException("A MultiQueue needs at least two heaps");
+		heaps = new LongHeap[numQueues];
+		locks = new ReentrantLock[numQueues];
+		tops = new AtomicLongArray(numQueues * PAD);
+		for(int i = 0; i < numQueues; ++i) {
+			heaps[i] = new LongHeap();
+			locks[i] = new ReentrantLock();
+			tops.set(i * PAD, EMPTY);
+		}
+	}
+
+	/*
+	 * Makes a queue with four heaps for every processor.
+	 */
+	public MultiQueue() {
+		this(Math.max(2, 4 * Runtime.getRuntime().availableProcessors()));
+	}
+
+	/*
+	 * Adds key with the given value to a random heap.
+	 */
+	public void add(int key, int value) {
+		if(key < 0)
+			throw new IllegalArgumentException("Negative key " + key);
+		long entry = LongHeap.pack(key, value);
+		ThreadLocalRandom rand = ThreadLocalRandom.current();
+		while(true) {
+			int i = rand.nextInt(heaps.length);
+			if(locks[i].tryLock()) {
+				try {
+					heaps[i].add(entry);
+					tops.set(i * PAD, heaps[i].peek());
+				}
+				finally {
+					locks[i].unlock();
+				}
+				return;
+			}
+		}
+	}
+
+	/*
+	 * Removes and returns an entry close to the smallest, or EMPTY if every heap
+	 * was empty when we looked.  Entries still being added by other threads may
+	 * be missed, so EMPTY doesn't mean the queue will stay empty.
+	 */
+	public long poll() {
+		ThreadLocalRandom rand = ThreadLocalRandom.current();
+		while(true) {
+			int i = rand.nextInt(heaps.length);
+			int j = rand.nextInt(heaps.length);
+			long ti = tops.get(i * PAD);
+			long tj = tops.get(j * PAD);
+			int best = tj < ti ? j : i;
+			if(Math.min(ti, tj) == EMPTY) {
+				// both were empty, so make sure they all are before giving up
+				best = firstNonEmpty();
+				if(best < 0)
+					return EMPTY;
+			}
+			if(!locks[best].tryLock())
+				continue;
+			try {
+				LongHeap h = heaps[best];
+				if(h.isEmpty())
+					continue; // someone beat us to it
+				long entry = h.poll();
+				tops.set(best * PAD, h.isEmpty() ? EMPTY : h.peek());
+				return entry;
+			}
+			finally {
+				locks[best].unlock();
+			}
+		}
+	}
+
+	private int firstNonEmpty() {
+		for(int i = 0; i < heaps.length; ++i) {
+			if(tops.get(i * PAD) != EMPTY)
+				return i;
+		}
+		return -1;
+	}
+
+	/*
+	 * Whether every heap was empty when we looked.
+	 */
+	public boolean isEmpty() {
+		return firstNonEmpty() < 0;
+	}
+
+	public static int keyOf(long entry) {
+		return LongHeap.keyOf(entry);
+	}
+	public static int valueOf(long entry) {
+		return LongHeap.valueOf(entry);
+	}
+}
@@ -0,0 +1,32 @@
+/*
+ * A reusable iterator over the out-edges of one vertex at a time.  Algorithms
+ * get one from Graph.cursor() before their main loop, then call reset for every
+ * vertex they visit, so walking all of the edges of a graph doesn't allocate
+ * anything per edge (or, for most graphs, per vertex).  The usual loop is:
+ * 
+ * 	c.reset(u);
+ * 	for(int v = c.nextTarget(); v >= 0; v = c.nextTarget())
+ * 		... use v and c.weight() ...
+ * 
+ * A cursor isn't safe to share between threads, and the results are undefined
+ * if the graph is changed while a row is being walked.
+ */
+public abstract class NeighborCursor {
+	/*
+	 * Positions the cursor before the first out-edge of u.
+	 * 
+	 * u: The vertex whose edges we want to walk.
+	 */
+	public abstract void reset(int u);
+	
+	/*
+	 * Moves to the next edge and returns the vertex it leads to, or -1 once
+	 * there are no edges left.
+	 */
+	public abstract int nextTarget();
+	
+	/*
+	 * Returns the weight of the edge most recently returned by nextTarget.
+	 */
+	public abstract int weight();
+}
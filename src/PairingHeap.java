@@ -0,0 +1,229 @@
+/*
+ * A pairing heap implementation of the Heap interface.  Each item is the root of
+ * a tree whose children all have values no smaller than it, and the whole heap is
+ * one such tree.  Adding a key and lowering its value are both O(1): the new or
+ * cut-off tree is just compared against the root and hung under whichever is
+ * bigger.  The work is put off until dequeue, which pairs up the children of the
+ * old root and melds the pairs back together, for O(log n) amortized.  That makes
+ * it a good fit for dense graphs, where Dijkstra's algorithm lowers values many
+ * times for every vertex it removes.
+ *
+ * There are no node objects.  Keys must be in [0, num), and each key's node is a
+ * slot in a set of parallel arrays: its first child, its next sibling, and the
+ * node before it, which is its parent if it's a first child and its previous
+ * sibling otherwise.  Everything is done with loops, since the trees can get
+ * very deep.
+ */
+public class PairingHeap implements Heap {
+	private int[] child; // the leftmost child of each node, or -1
+	private int[] sibling; // the next sibling to the right, or -1
+	private int[] prev; // the parent of a leftmost child, or the sibling to the left
+	private int[] values;
+	private boolean[] present; // whether each key is in the heap
+	private int root = -1;
+	private int size = 0;
+
+	/*
+	 * Makes a heap for the keys 0 through num-1.
+	 */
+	public PairingHeap(int num) {
+		child = new int[num];
+		sibling = new int[num];
+		prev = new int[num];
+		values = new int[num];
+		present = new boolean[num];
+	}
+
+	// Whether a comes out before b: by value, then by key to keep things predictable
+	private boolean before(int a, int b) {
+		return values[a] < values[b] || (values[a] == values[b] && a < b);
+	}
+
+	/*
+	 * Joins two trees that aren't attached to anything, making the one with the
+	 * bigger root the leftmost child of the other.  Returns the new root.
+	 */
+	private int meld(int a, int b) {
+		if(a < 0)
+			return b;
+		if(b < 0)
+			return a;
+		if(before(b, a)) {
+			int t = a;
+			a = b;
+			b = t;
+		}
+		int first = child[a];
+		sibling[b] = first;
+		if(first >= 0)
+			prev[first] = b;
+		prev[b] = a;
+		child[a] = b;
+		return a;
+	}
+
+	/*
+	 * Detaches the tree rooted at x (which isn't the root of the heap) from its
+	 * parent and siblings.
+	 */
+	private void cut(int x) {
+		int p = prev[x];
+		int s = sibling[x];
+		if(child[p] == x)
+			child[p] = s;
+		else
+			sibling[p] = s;
+		if(s >= 0)
+			prev[s] = p;
+		sibling[x] = -1;
+		prev[x] = -1;
+	}
+
+	/*
+	 * Melds a list of siblings, starting from first, into one tree with the usual
+	 * two passes: meld them in pairs from left to right, then meld the pairs into
+	 * one from right to left.  The first pass strings the pairs together in
+	 * reverse through their sibling links, which is the order the second pass
+	 * wants them in anyway.  Returns the root, or -1 for an empty list.
+	 */
+	private int combine(int first) {
+		int pairs = -1;
+		while(first >= 0) {
+			int a = first;
+			int b = sibling[a];
+			first = b < 0 ? -1 : sibling[b];
+			sibling[a] = -1;
+			prev[a] = -1;
+			if(b >= 0) {
+				sibling[b] = -1;
+				prev[b] = -1;
+				a = meld(a, b);
+			}
+			sibling[a] = pairs;
+			pairs = a;
+		}
+		if(pairs < 0)
+			return -1;
+		int result = pairs;
+		pairs = sibling[result];
+		sibling[result] = -1;
+		while(pairs >= 0) {
+			int next = sibling[pairs];
+			sibling[pairs] = -1;
+			result = meld(result, pairs);
+			pairs = next;
+		}
+		return result;
+	}
+
+	/*
+	 * Takes key out of the heap, wherever it is.
+	 */
+	private void remove(int key) {
+		if(key == root)
+			root = combine(child[key]);
+		else {
+			cut(key);
+			root = meld(root, combine(child[key]));
+		}
+		child[key] = -1;
+		present[key] = false;
+		size--;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Heap#dequeue()
+	 */
+	public int dequeue() {
+		if(size == 0)
+			return -1;
+		int top = root;
+		remove(top);
+		return top;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Heap#add(int, int)
+	 */
+	public void add(int key, int value) {
+		if(present[key])
+			throw new IllegalArgumentException("Key " + key + " is already in the heap");
+		child[key] = -1;
+		sibling[key] = -1;
+		prev[key] = -1;
+		values[key] = value;
+		present[key] = true;
+		size++;
+		root = meld(root, key);
+	}
+
+	/*
+	 * Lowering a value is O(1); raising one means taking the key out and putting
+	 * it back in, which costs as much as a dequeue.
+	 * (non-Javadoc)
+	 * @see Heap#updateKey(int, int)
+	 */
+	public void updateKey(int key, int newValue) {
+		if(!present[key])
+			throw new IllegalArgumentException("Key " + key + " is not in the heap");
+		if(newValue <= values[key]) {
+			values[key] = newValue;
+			if(key != root) {
+				cut(key);
+				root = meld(root, key);
+			}
+		}
+		else {
+			remove(key);
+			add(key, newValue);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Heap#isEmpty()
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Heap#hasKey(int)
+	 */
+	public boolean hasKey(int key) {
+		return present[key];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Heap#peekTopValue()
+	 */
+	public int peekTopValue() {
+		if(size == 0)
+			throw new IllegalStateException("The heap is empty");
+		return values[root];
+	}
+
+	/*
+	 * Returns -1 if the heap is empty.
+	 * (non-Javadoc)
+	 * @see Heap#peekTop()
+	 */
+	public int peekTop() {
+		return root;
+	}
+
+	/*
+	 * Returns Integer.MAX_VALUE/4 for keys that aren't in the heap, like FixedHeap.
+	 * (non-Javadoc)
+	 * @see Heap#getValue(int)
+	 */
+	public int getValue(int key) {
+		if(!present[key])
+			return Integer.MAX_VALUE/4;
+		return values[key];
+	}
+}
@@ -0,0 +1,156 @@
+import java.util.Arrays;
+
+/*
+ * The working memory of a search (distances, predecessors, which vertices are
+ * done, the heap, and a queue), kept between searches so that running many
+ * small searches over one big graph doesn't cost O(V) each just to set up.
+ * Instead of clearing the arrays, every search gets a new epoch number, and an
+ * entry only counts if it was stamped with the current epoch, so starting a
+ * search is O(1) plus emptying whatever was left in the heap.
+ *
+ * Pass one to the versions of dijkstra, dijkstraSP, dijkstraPath, aStar and path
+ * in GraphAlgs that take one, and read the results back out of it with dist,
+ * prev and pathTo before starting the next search.  A context grows to fit
+ * whatever graph it's used on, and must only be used by one thread at a time.
+ */
+public class SearchContext {
+	private int[] dist;
+	private int[] prev;
+	private int[] reached; // dist and prev of v only count if reached[v] == epoch
+	private int[] done; // and v has been finished with if done[v] == epoch
+	private int[] queue; // for breadth-first searches
+	private DaryHeap heap;
+	private int epoch = 0;
+	private Graph cursorGraph; // the graph cursor walks, so we can reuse it
+	private NeighborCursor cursor;
+	private SearchContext backward; // the other half of a bidirectional search
+	private int settled; // how many vertices the current search has finished with
+
+	/*
+	 * Makes a context with room for graphs of up to n vertices.
+	 */
+	public SearchContext(int n) {
+		allocate(n);
+	}
+	public SearchContext() {
+		this(0);
+	}
+
+	private void allocate(int n) {
+		dist = new int[n];
+		prev = new int[n];
+		reached = new int[n];
+		done = new int[n];
+		queue = new int[n];
+		heap = new DaryHeap(n);
+		epoch = 0;
+	}
+
+	/*
+	 * Gets ready for a new search on g, throwing away the results of the last one.
+	 */
+	void start(Graph g) {
+		int n = g.numVertices();
+		if(n > dist.length)
+			allocate(Math.max(n, dist.length + (dist.length >> 1)));
+		else
+			heap.clear();
+		if(++epoch == Integer.MAX_VALUE) {
+			// start counting again before the stamps wrap around
+			Arrays.fill(reached, 0);
+			Arrays.fill(done, 0);
+			epoch = 1;
+		}
+		settled = 0;
+		if(backward != null)
+			backward.settled = 0;
+		if(cursorGraph != g) {
+			cursorGraph = g;
+			cursor = g.cursor();
+		}
+	}
+
+	/*
+	 * A second context for the search backwards from the sink, made the first time
+	 * it's wanted.
+	 */
+	SearchContext backward() {
+		if(backward == null)
+			backward = new SearchContext(dist.length);
+		return backward;
+	}
+	
+	DaryHeap heap() {
+		return heap;
+	}
+	NeighborCursor cursor() {
+		return cursor;
+	}
+	int[] queue() {
+		return queue;
+	}
+
+	/*
+	 * Records that v can be reached at distance d, from u.
+	 */
+	void reach(int v, int d, int u) {
+		dist[v] = d;
+		prev[v] = u;
+		reached[v] = epoch;
+	}
+	void finish(int v) {
+		done[v] = epoch;
+		settled++;
+	}
+	boolean isDone(int v) {
+		return done[v] == epoch;
+	}
+
+	/*
+	 * How many vertices the last search settled, on both sides if it was a
+	 * bidirectional one.  It's the usual measure of how much work a search did.
+	 */
+	public int settled() {
+		return settled + (backward == null ? 0 : backward.settled);
+	}
+	
+	/*
+	 * Whether the last search reached v.
+	 */
+	public boolean reached(int v) {
+		return v < reached.length && reached[v] == epoch;
+	}
+
+	/*
+	 * The distance the last search found to v, or Integer.MAX_VALUE/2 if it didn't
+	 * reach v.  A search that stopped early may not have found the shortest
+	 * distance to vertices other than the one it was looking for.
+	 */
+	public int dist(int v) {
+		return reached(v) ? dist[v] : Integer.MAX_VALUE/2;
+	}
+
+	/*
+	 * The vertex before v on the path the last search found, the source for the
+	 * source itself, or -1 if it didn't reach v.
+	 */
+	public int prev(int v) {
+		return reached(v) ? prev[v] : -1;
+	}
+
+	/*
+	 * The path the last search found from its source to v, including both ends,
+	 * or null if it didn't reach v.
+	 */
+	public int[] pathTo(int v) {
+		if(!reached(v))
+			return null;
+		int length = 1;
+		for(int u = v; prev[u] != u; u = prev[u])
+			length++;
+		int[] path = new int[length];
+		for(int u = v; length > 0; u = prev[u])
+			path[--length] = u;
+		return path;
+	}
+}